@@ -0,0 +1,105 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.IndicatorDTO;
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import com.example.poc.query.dynamic.repository.IndicatorRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndicatorService.evaluateIndicators sobre 1, 100 e 10 mil customers com 5 a 50 regras.
+ * As regras vêm de um repositório em memória, então apenas a avaliação em Java é medida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicatorEvaluationBenchmark {
+
+    private static final String CONTEXT = "CUSTOMER";
+
+    @Param({"1", "100", "10000"})
+    private int customerCount;
+
+    @Param({"5", "20", "50"})
+    private int ruleCount;
+
+    private IndicatorService indicatorService;
+    private List<Customer> customers;
+
+    @Setup
+    public void setUp() {
+        List<IndicatorRule> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            rules.add(rule(i));
+        }
+
+        IndicatorRuleRepository repository = (IndicatorRuleRepository) Proxy.newProxyInstance(
+                IndicatorRuleRepository.class.getClassLoader(),
+                new Class<?>[]{IndicatorRuleRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByContextAndActiveTrueOrderByDisplayOrderAsc")) {
+                        return rules;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        QueryMetrics queryMetrics = new QueryMetrics(new SimpleMeterRegistry(), new QueryPlanCache(1000));
+        indicatorService = new IndicatorService(repository, new IndicatorRuleCompiler(), null, queryMetrics);
+
+        LocalDateTime now = LocalDateTime.now();
+        customers = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            customers.add(Customer.builder()
+                    .id(UUID.randomUUID())
+                    .name("Empresa " + (i % 3 == 0 ? "Silva" : "Santos") + " " + i)
+                    .tradeName(i % 2 == 0 ? "Fantasia " + i : null)
+                    .cnpj(String.format("%014d", i))
+                    .active(i % 4 != 0)
+                    .blocked(i % 7 == 0)
+                    .createdAt(now.minusDays(i % 365))
+                    .updatedAt(now)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<List<IndicatorDTO>> evaluateIndicators() {
+        return indicatorService.evaluateIndicators(customers, CONTEXT);
+    }
+
+    /**
+     * Alterna campos e operadores para cobrir os diferentes tipos de predicado compilado
+     */
+    private static IndicatorRule rule(int index) {
+        IndicatorRule.IndicatorRuleBuilder rule = IndicatorRule.builder()
+                .id(UUID.randomUUID())
+                .ruleKey("rule_" + index)
+                .name("Rule " + index)
+                .icon("icon")
+                .context(CONTEXT)
+                .active(true)
+                .displayOrder(index);
+
+        return switch (index % 6) {
+            case 0 -> rule.conditionField("active").conditionOperator(IndicatorRule.ConditionOperator.IS_TRUE).build();
+            case 1 -> rule.conditionField("blocked").conditionOperator(IndicatorRule.ConditionOperator.IS_FALSE).build();
+            case 2 -> rule.conditionField("name").conditionOperator(IndicatorRule.ConditionOperator.CONTAINS)
+                    .conditionValue("silva").build();
+            case 3 -> rule.conditionField("cnpj").conditionOperator(IndicatorRule.ConditionOperator.EQUALS)
+                    .conditionValue("00000000000042").build();
+            case 4 -> rule.conditionField("tradeName").conditionOperator(IndicatorRule.ConditionOperator.IS_NULL).build();
+            default -> rule.conditionField("createdAt").conditionOperator(IndicatorRule.ConditionOperator.GREATER_THAN)
+                    .conditionValue(LocalDateTime.now().minusDays(30).withNano(0).toString()).build();
+        };
+    }
+}
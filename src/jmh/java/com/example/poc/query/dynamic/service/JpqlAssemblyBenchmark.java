@@ -0,0 +1,78 @@
+package com.example.poc.query.dynamic.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem da JPQL da busca dinâmica com 0 a 20 filtros.
+ * compilePlan mede o trabalho feito pelo DynamicQueryService quando o plano não está em cache (interpretação da base,
+ * filtros, contagem, prova e ordenação); renderPage mede o que ainda é feito a cada busca sobre o plano em cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JpqlAssemblyBenchmark {
+
+    private static final String BASE_QUERY = "SELECT c FROM Customer c WHERE c.deletedAt IS NULL";
+    private static final String ORDER = "ORDER BY c.name ASC";
+    private static final String[] FILTER_TEMPLATES = {
+            "AND c.active = true",
+            "AND c.blocked = false",
+            "AND LOWER(c.name) LIKE LOWER(CONCAT('%%', :name%d, '%%'))",
+            "AND c.cnpj = :cnpj%d",
+            "AND c.createdAt >= :createdFrom%d",
+            "AND (c.tradeName IS NULL OR c.tradeName <> :tradeName%d)",
+            "AND c.id IN (SELECT o.id FROM Customer o WHERE o.updatedAt > :updatedAt%d)"
+    };
+
+    @Param({"0", "5", "10", "20"})
+    private int filterCount;
+
+    private List<String> filters;
+    private JpqlQueryModel compiledModel;
+    private List<String> extraSelections;
+
+    @Setup
+    public void setUp() {
+        filters = new ArrayList<>(filterCount);
+        for (int i = 0; i < filterCount; i++) {
+            filters.add(String.format(FILTER_TEMPLATES[i % FILTER_TEMPLATES.length], i));
+        }
+        compiledModel = assemble().withOrderBy(JpqlQueryModel.orderItemsOf(ORDER));
+        extraSelections = List.of(
+                "CASE WHEN c.blocked = true THEN true ELSE false END",
+                "CASE WHEN c.active = false THEN true ELSE false END",
+                "CASE WHEN c.active = true THEN true ELSE false END",
+                "CASE WHEN c.blocked = false THEN true ELSE false END",
+                "CASE WHEN c.deletedAt IS NOT NULL THEN true ELSE false END",
+                "COUNT(c) OVER ()");
+    }
+
+    @Benchmark
+    public void compilePlan(Blackhole blackhole) {
+        JpqlQueryModel model = assemble();
+        blackhole.consume(model.toCountJpql());
+        blackhole.consume(model.toProbeJpql());
+        blackhole.consume(model.withOrderBy(JpqlQueryModel.orderItemsOf(ORDER)).toJpql());
+    }
+
+    @Benchmark
+    public String renderPage() {
+        return compiledModel.withExtraSelections(extraSelections).toJpql();
+    }
+
+    private JpqlQueryModel assemble() {
+        JpqlQueryModel model = JpqlQueryModel.parse(BASE_QUERY);
+        for (String filter : filters) {
+            model = model.withPredicate(JpqlQueryModel.predicateOf(filter));
+        }
+        return model;
+    }
+}
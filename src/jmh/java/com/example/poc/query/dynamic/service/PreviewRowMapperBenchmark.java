@@ -0,0 +1,46 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.Customer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de cada linha do preview de query em array de valores (PreviewRowMapper)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreviewRowMapperBenchmark {
+
+    private Customer customer;
+
+    @Setup
+    public void setUp() {
+        customer = Customer.builder()
+                .id(UUID.randomUUID())
+                .name("Empresa Silva LTDA")
+                .tradeName("Silva")
+                .cnpj("11111111111111")
+                .active(true)
+                .blocked(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Benchmark
+    public Object[] convertEntity() {
+        return PreviewRowMapper.forResult(customer).map(customer);
+    }
+
+    @Benchmark
+    public Object[] convertScalar() {
+        return PreviewRowMapper.forResult(42L).map(42L);
+    }
+}
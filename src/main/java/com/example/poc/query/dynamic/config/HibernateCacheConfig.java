@@ -0,0 +1,54 @@
+package com.example.poc.query.dynamic.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Configuração do cache de segundo nível do Hibernate (JCache + Caffeine) e das métricas das suas regiões.
+ * As métricas hibernate.* são publicadas pela autoconfiguração do Spring Boot quando hibernate.generate_statistics está ativo.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * CacheManager próprio deste contexto. O provider JCache mantém os gerenciadores por URI na JVM inteira,
+     * então um URI único evita que dois contextos (ex: testes com propriedades diferentes) compartilhem regiões.
+     * As regiões usam a configuração padrão do Caffeine (application.conf).
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    /**
+     * Publica acertos, falhas, inserções e remoções de cada região (cache.gets, cache.puts, cache.removals e
+     * cache.evictions com a tag cache=região), lidos das estatísticas do próprio JCache, ligadas aqui em cada região;
+     * a taxa de acerto fica disponível sem ligar hibernate.generate_statistics.
+     * O EntityManagerFactory garante que o Hibernate já criou as regiões antes do registro.
+     */
+    @Bean
+    public MeterBinder hibernateCacheRegionMetrics(CacheManager hibernateCacheManager,
+                                                   EntityManagerFactory entityManagerFactory) {
+        return registry -> hibernateCacheManager.getCacheNames().forEach(region -> {
+            hibernateCacheManager.enableStatistics(region, true);
+            JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(region));
+        });
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.poc.query.dynamic.controller;
 
+import com.example.poc.query.dynamic.dto.AvailableQueriesDTO;
 import com.example.poc.query.dynamic.dto.CustomerFilterDTO;
 import com.example.poc.query.dynamic.dto.CustomerSearchResponseDTO;
+import com.example.poc.query.dynamic.dto.ExportFormat;
+import com.example.poc.query.dynamic.usecase.ExportCustomerUseCase;
 import com.example.poc.query.dynamic.usecase.SearchCustomerUseCase;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 @RestController
@@ -16,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 public class CustomerController {
 
     private final SearchCustomerUseCase searchCustomerUseCase;
+    private final ExportCustomerUseCase exportCustomerUseCase;
 
     /**
      * Busca dinâmica de customers usando filtros e ordenações configurados no banco
@@ -30,5 +39,36 @@ public class CustomerController {
         return ResponseEntity.ok(result);
     }
 
-}
+    /**
+     * Opções de filtros e ordenações disponíveis, com suporte a requisição condicional (If-None-Match)
+     */
+    @GetMapping("/search/options")
+    public ResponseEntity<AvailableQueriesDTO> getSearchOptions(WebRequest webRequest) {
+        AvailableQueriesDTO options = searchCustomerUseCase.getAvailableQueries();
+        if (webRequest.checkNotModified(options.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(options.getEtag())
+                .body(options);
+    }
 
+    /**
+     * Exporta todos os customers que atendem aos filtros (sem paginação), em NDJSON ou CSV.
+     * O resultado é escrito direto na resposta enquanto é lido do banco
+     */
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestBody CustomerFilterDTO filter,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format
+    ) {
+        StreamingResponseBody body = output -> exportCustomerUseCase.execute(filter, format, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("customers." + format.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.poc.query.dynamic.controller;
 
 import com.example.poc.query.dynamic.dto.*;
+import com.example.poc.query.dynamic.service.DynamicQueryService;
+import com.example.poc.query.dynamic.service.InvalidQueryFragmentException;
 import com.example.poc.query.dynamic.service.QueryConfigService;
+import com.example.poc.query.dynamic.service.SlowQueryRecorder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -9,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -19,6 +23,8 @@ import java.util.UUID;
 public class QueryConfigController {
 
     private final QueryConfigService queryConfigService;
+    private final DynamicQueryService dynamicQueryService;
+    private final SlowQueryRecorder slowQueryRecorder;
 
     // QueryBase endpoints
     @GetMapping("/bases")
@@ -43,6 +49,8 @@ public class QueryConfigController {
     public ResponseEntity<QueryBaseDTO> updateQueryBase(@PathVariable UUID id, @RequestBody QueryBaseDTO dto) {
         try {
             return ResponseEntity.ok(queryConfigService.updateQueryBase(id, dto));
+        } catch (InvalidQueryFragmentException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -77,6 +85,8 @@ public class QueryConfigController {
     public ResponseEntity<QueryFilterDTO> updateQueryFilter(@PathVariable UUID id, @RequestBody QueryFilterDTO dto) {
         try {
             return ResponseEntity.ok(queryConfigService.updateQueryFilter(id, dto));
+        } catch (InvalidQueryFragmentException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -111,6 +121,8 @@ public class QueryConfigController {
     public ResponseEntity<QueryOrderDTO> updateQueryOrder(@PathVariable UUID id, @RequestBody QueryOrderDTO dto) {
         try {
             return ResponseEntity.ok(queryConfigService.updateQueryOrder(id, dto));
+        } catch (InvalidQueryFragmentException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -127,5 +139,36 @@ public class QueryConfigController {
     public ResponseEntity<QueryPreviewResponse> previewQuery(@RequestBody QueryPreviewRequest request) {
         return ResponseEntity.ok(queryConfigService.previewQuery(request));
     }
-}
 
+    @DeleteMapping("/preview/{previewId}")
+    public ResponseEntity<Void> cancelPreview(@PathVariable String previewId) {
+        return queryConfigService.cancelPreview(previewId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // Plan cache endpoint
+    @GetMapping("/plan-cache/stats")
+    public ResponseEntity<QueryPlanCacheStatsDTO> getPlanCacheStats() {
+        return ResponseEntity.ok(dynamicQueryService.getPlanCacheStats());
+    }
+
+    // Slow query endpoints
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<SlowQueryDTO>> getSlowQueries() {
+        return ResponseEntity.ok(slowQueryRecorder.getSlowest());
+    }
+
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Void> clearSlowQueries() {
+        slowQueryRecorder.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    // Query base, filtro ou ordenação que não compila com as queries base do contexto
+    @ExceptionHandler(InvalidQueryFragmentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidQueryFragment(InvalidQueryFragmentException e) {
+        log.warn("Rejected query configuration: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -16,5 +16,15 @@ public class AvailableQueriesDTO {
     private String context;
     private List<QueryMetadataDTO> filters;
     private List<QueryMetadataDTO> orders;
+
+    /**
+     * Versão do snapshot de metadados que gerou esta resposta
+     */
+    private Long version;
+
+    /**
+     * ETag do contexto; muda apenas quando os filtros ou ordenações do contexto mudam
+     */
+    private String etag;
 }
 
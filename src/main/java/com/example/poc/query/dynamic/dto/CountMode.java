@@ -0,0 +1,27 @@
+package com.example.poc.query.dynamic.dto;
+
+/**
+ * Como o total de registros da busca é obtido
+ */
+public enum CountMode {
+
+    /**
+     * Contagem exata de todos os registros
+     */
+    EXACT,
+
+    /**
+     * Conta até o limite configurado; acima dele o total indica apenas "mais de N registros"
+     */
+    CAPPED,
+
+    /**
+     * Estimativa do planejador do banco (EXPLAIN no PostgreSQL); em outros bancos cai para a contagem exata
+     */
+    ESTIMATED,
+
+    /**
+     * Não conta: o total é o mínimo conhecido, suficiente para saber se existe próxima página
+     */
+    NONE
+}
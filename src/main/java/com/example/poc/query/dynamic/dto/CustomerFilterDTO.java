@@ -28,5 +28,20 @@ public class CustomerFilterDTO {
      * Parâmetros necessários para os filtros (ex: {"name": "João", "cnpj": "12345678000100"})
      */
     private Map<String, Object> parameters;
+
+    /**
+     * Modo de paginação (OFFSET por padrão). Em KEYSET o número da página é ignorado e a navegação usa o cursor
+     */
+    private PaginationMode paginationMode;
+
+    /**
+     * Cursor retornado em nextCursor pela página anterior; vazio para a primeira página em KEYSET
+     */
+    private String cursor;
+
+    /**
+     * Como o total deve ser obtido (EXACT, CAPPED, ESTIMATED ou NONE); usa o padrão da aplicação quando vazio
+     */
+    private CountMode countMode;
 }
 
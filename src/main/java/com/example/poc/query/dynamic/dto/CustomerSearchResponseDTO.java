@@ -21,5 +21,15 @@ public class CustomerSearchResponseDTO {
      * Opções de filtros e ordenações disponíveis
      */
     private AvailableQueriesDTO availableQueries;
+
+    /**
+     * Cursor da próxima página na paginação KEYSET; null quando não há mais registros
+     */
+    private String nextCursor;
+
+    /**
+     * Como o totalElements foi obtido. Em CAPPED e NONE é um mínimo; em ESTIMATED é uma estimativa do banco
+     */
+    private CountMode countMode;
 }
 
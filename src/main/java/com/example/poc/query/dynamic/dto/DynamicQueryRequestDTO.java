@@ -20,5 +20,13 @@ public class DynamicQueryRequestDTO {
     private Map<String, Object> parameters;
     private Integer page;
     private Integer size;
+    private PaginationMode paginationMode;
+    private String cursor;
+    private CountMode countMode;
+
+    /**
+     * Lê as colunas declaradas na projeção da query base em vez da entidade inteira, quando houver
+     */
+    private Boolean projected;
 }
 
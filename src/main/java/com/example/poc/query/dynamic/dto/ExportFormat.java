@@ -0,0 +1,25 @@
+package com.example.poc.query.dynamic.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Formatos da exportação de resultados
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    /**
+     * Um objeto JSON por linha
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * CSV com cabeçalho; cada indicador vira uma coluna
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+}
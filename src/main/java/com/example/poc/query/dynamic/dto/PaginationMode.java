@@ -0,0 +1,17 @@
+package com.example.poc.query.dynamic.dto;
+
+/**
+ * Forma de navegar entre as páginas da busca
+ */
+public enum PaginationMode {
+
+    /**
+     * Paginação por número de página (OFFSET); o banco lê e descarta todas as linhas anteriores
+     */
+    OFFSET,
+
+    /**
+     * Paginação por cursor (seek); a próxima página começa logo após a última linha da página anterior
+     */
+    KEYSET
+}
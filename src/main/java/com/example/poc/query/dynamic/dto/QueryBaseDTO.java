@@ -17,6 +17,7 @@ public class QueryBaseDTO {
     private String nameUnique;
     private String context;
     private String query;
+    private String projection;
     private String description;
     private Boolean active;
     private LocalDateTime createdAt;
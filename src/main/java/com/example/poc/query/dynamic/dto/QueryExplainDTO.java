@@ -0,0 +1,61 @@
+package com.example.poc.query.dynamic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryExplainDTO {
+
+    /**
+     * Indica se o plano foi obtido; quando false, message explica o motivo
+     */
+    private boolean available;
+    private String message;
+
+    /**
+     * Custo total estimado pelo planejador (unidades de custo do PostgreSQL)
+     */
+    private Double estimatedCost;
+    private Long estimatedRows;
+
+    /**
+     * Tempo real do nó raiz e linhas efetivamente retornadas, medidos pelo ANALYZE
+     */
+    private Double actualTimeMs;
+    private Long actualRows;
+
+    private Double planningTimeMs;
+    private Double executionTimeMs;
+
+    /**
+     * Blocos lidos do cache do banco (hit) e do disco/SO (read), somados em todo o plano
+     */
+    private Long sharedHitBlocks;
+    private Long sharedReadBlocks;
+
+    private List<String> indexesUsed;
+
+    /**
+     * Tabelas lidas por inteiro (Seq Scan)
+     */
+    private List<String> sequentialScans;
+
+    private List<String> warnings;
+
+    /**
+     * Indica se a execução passou de dynamic-query.slow-query.threshold
+     */
+    private boolean slow;
+
+    /**
+     * Plano completo em JSON, como retornado pelo banco
+     */
+    private String plan;
+}
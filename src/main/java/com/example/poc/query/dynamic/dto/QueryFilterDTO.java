@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -17,6 +18,11 @@ public class QueryFilterDTO {
     private String nameUnique;
     private String context;
     private String queryFragment;
+
+    /**
+     * Parâmetros nomeados exigidos pelo filtro e seus tipos, identificados ao salvar (somente leitura)
+     */
+    private Map<String, String> parameterTypes;
     private String description;
     private Boolean active;
     private LocalDateTime createdAt;
@@ -0,0 +1,20 @@
+package com.example.poc.query.dynamic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryPlanCacheStatsDTO {
+    private Integer cachedPlans;
+    private Long planCacheHits;
+    private Long planCacheMisses;
+    private Boolean hibernateStatisticsEnabled;
+    private Long hibernateQueryPlanCacheHits;
+    private Long hibernateQueryPlanCacheMisses;
+    private Long preparedStatements;
+}
@@ -17,5 +17,25 @@ public class QueryPreviewRequest {
     private List<String> filters;
     private List<String> orders;
     private Map<String, Object> parameters;
+
+    /**
+     * Identificador escolhido pelo cliente para poder cancelar o preview em andamento; gerado quando vazio
+     */
+    private String previewId;
+
+    /**
+     * Quantidade de linhas desejada; limitada a dynamic-query.preview.max-rows
+     */
+    private Integer maxRows;
+
+    /**
+     * Como o total deve ser obtido (EXACT, CAPPED, ESTIMATED ou NONE); usa dynamic-query.preview.count-mode quando vazio
+     */
+    private CountMode countMode;
+
+    /**
+     * Quando true, executa EXPLAIN (ANALYZE, BUFFERS) da query no PostgreSQL e devolve o resumo do plano
+     */
+    private boolean explain;
 }
 
@@ -6,16 +6,36 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
-import java.util.Map;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class QueryPreviewResponse {
+    private String previewId;
     private String finalQuery;
     private boolean valid;
     private String errorMessage;
-    private List<Map<String, Object>> previewResults;
-    private int totalResults;
+
+    /**
+     * Nomes das colunas, uma única vez para todo o preview
+     */
+    private List<String> columns;
+
+    /**
+     * Valores de cada linha, na ordem de columns
+     */
+    private List<Object[]> rows;
+
+    private long totalResults;
+
+    /**
+     * Como totalResults foi obtido: EXACT, CAPPED (no mínimo), ESTIMATED ou NONE (apenas as linhas buscadas)
+     */
+    private CountMode countMode;
+
+    /**
+     * Resumo do plano de execução, apenas quando solicitado com explain
+     */
+    private QueryExplainDTO explain;
 }
@@ -0,0 +1,28 @@
+package com.example.poc.query.dynamic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlowQueryDTO {
+    private String kind;
+    private String baseQueryName;
+    private List<String> filters;
+    private String order;
+    private String query;
+    private Map<String, String> parameterTypes;
+    private Long occurrences;
+    private Long maxDurationMs;
+    private Long lastDurationMs;
+    private Long rows;
+    private LocalDateTime lastSeenAt;
+}
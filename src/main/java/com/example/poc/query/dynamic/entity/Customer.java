@@ -11,6 +11,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "customer")
+@EntityListeners(EntityChangePublisher.class)
 @Data
 @Builder
 @NoArgsConstructor
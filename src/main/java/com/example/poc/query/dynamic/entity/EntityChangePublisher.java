@@ -0,0 +1,28 @@
+package com.example.poc.query.dynamic.entity;
+
+import com.example.poc.query.dynamic.event.EntityChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener que publica um EntityChangedEvent a cada escrita da entidade.
+ * É instanciado pelo Spring (o Hibernate usa o container de beans do Spring para os listeners).
+ * Atualizações em massa via JPQL/SQL não passam pelos listeners e não geram o evento.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityChangePublisher {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        eventPublisher.publishEvent(new EntityChangedEvent(entity.getClass()));
+    }
+}
@@ -5,12 +5,16 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
 @Table(name = "query_base")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @Builder
 @NoArgsConstructor
@@ -30,6 +34,12 @@ public class QueryBase {
     @Column(name = "query", nullable = false, columnDefinition = "TEXT")
     private String query;
 
+    /**
+     * Colunas lidas no modo projeção (atributos da entidade raiz separados por vírgula); null lê a entidade inteira
+     */
+    @Column(name = "projection", columnDefinition = "TEXT")
+    private String projection;
+
     @Column(name = "description", length = 500)
     private String description;
 
@@ -5,12 +5,16 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
 @Table(name = "query_filter")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @Builder
 @NoArgsConstructor
@@ -30,6 +34,18 @@ public class QueryFilter {
     @Column(name = "query_fragment", nullable = false, columnDefinition = "TEXT")
     private String queryFragment;
 
+    /**
+     * Predicado já validado e normalizado (sem o AND/WHERE inicial), usado pela busca sem reinterpretar o fragmento
+     */
+    @Column(name = "compiled_fragment", columnDefinition = "TEXT")
+    private String compiledFragment;
+
+    /**
+     * Parâmetros nomeados exigidos pelo filtro e seus tipos (ex: cnpj:String, id:UUID)
+     */
+    @Column(name = "parameter_types", columnDefinition = "TEXT")
+    private String parameterTypes;
+
     @Column(name = "description", length = 500)
     private String description;
 
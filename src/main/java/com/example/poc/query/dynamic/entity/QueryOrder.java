@@ -5,12 +5,16 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
 @Table(name = "query_order")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @Builder
 @NoArgsConstructor
@@ -30,6 +34,12 @@ public class QueryOrder {
     @Column(name = "query_fragment", nullable = false, columnDefinition = "TEXT")
     private String queryFragment;
 
+    /**
+     * Itens de ordenação já validados e normalizados (sem o ORDER BY), usados pela busca sem reinterpretar o fragmento
+     */
+    @Column(name = "compiled_fragment", columnDefinition = "TEXT")
+    private String compiledFragment;
+
     @Column(name = "description", length = 500)
     private String description;
 
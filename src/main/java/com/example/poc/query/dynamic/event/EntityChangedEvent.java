@@ -0,0 +1,13 @@
+package com.example.poc.query.dynamic.event;
+
+import lombok.Value;
+
+/**
+ * Evento publicado quando uma entidade observada (ex: Customer, IndicatorRule) é inserida, alterada ou removida.
+ * Os caches de resultados escutam este evento para se invalidar após o commit.
+ */
+@Value
+public class EntityChangedEvent {
+
+    Class<?> entityType;
+}
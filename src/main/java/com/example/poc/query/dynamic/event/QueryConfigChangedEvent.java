@@ -0,0 +1,13 @@
+package com.example.poc.query.dynamic.event;
+
+import lombok.Value;
+
+/**
+ * Evento publicado quando uma QueryBase, QueryFilter ou QueryOrder é criada, alterada ou removida.
+ * Os caches de metadados escutam este evento para se invalidar após o commit.
+ */
+@Value
+public class QueryConfigChangedEvent {
+
+    String context;
+}
@@ -0,0 +1,14 @@
+package com.example.poc.query.dynamic.event;
+
+import lombok.Value;
+
+/**
+ * Evento publicado pelo QueryMetadataRegistry depois de trocar o snapshot de metadados e limpar o cache de planos.
+ * Caches que dependem dos planos (ex: resultados de busca) devem se invalidar neste evento, e não na alteração,
+ * para que nenhuma busca com o plano antigo seja guardada depois da invalidação.
+ */
+@Value
+public class QueryMetadataReloadedEvent {
+
+    long version;
+}
@@ -1,7 +1,10 @@
 package com.example.poc.query.dynamic.repository;
 
 import com.example.poc.query.dynamic.entity.IndicatorRule;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +13,7 @@ import java.util.UUID;
 @Repository
 public interface IndicatorRuleRepository extends JpaRepository<IndicatorRule, UUID> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<IndicatorRule> findByContextAndActiveTrueOrderByDisplayOrderAsc(String context);
 
     List<IndicatorRule> findByContextOrderByDisplayOrderAsc(String context);
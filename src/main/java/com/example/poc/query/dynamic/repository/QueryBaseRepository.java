@@ -1,17 +1,26 @@
 package com.example.poc.query.dynamic.repository;
 
 import com.example.poc.query.dynamic.entity.QueryBase;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface QueryBaseRepository extends JpaRepository<QueryBase, UUID> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<QueryBase> findByNameUniqueAndActiveTrue(String nameUnique);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<QueryBase> findByContextAndActiveTrue(String context);
-}
 
+    List<QueryBase> findByContextAndActiveTrueOrderByNameUnique(String context);
+
+    List<QueryBase> findByActiveTrue();
+}
@@ -1,7 +1,10 @@
 package com.example.poc.query.dynamic.repository;
 
 import com.example.poc.query.dynamic.entity.QueryFilter;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,8 +14,11 @@ import java.util.UUID;
 @Repository
 public interface QueryFilterRepository extends JpaRepository<QueryFilter, UUID> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<QueryFilter> findByContextAndActiveTrue(String context);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<QueryFilter> findByNameUniqueAndActiveTrue(String nameUnique);
-}
 
+    List<QueryFilter> findByActiveTrue();
+}
@@ -0,0 +1,47 @@
+package com.example.poc.query.dynamic.service;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Forma compilada de um filtro ou ordenação, produzida ao salvar o fragmento.
+ * text é o predicado (filtro) ou os itens de ordenação, já normalizados e validados contra as queries base do contexto.
+ */
+@Value
+public class CompiledFragment {
+
+    String text;
+
+    /**
+     * Parâmetros nomeados exigidos pelo fragmento e o tipo esperado de cada um (nome simples da classe)
+     */
+    Map<String, String> parameterTypes;
+
+    /**
+     * Forma persistida dos tipos (ex: cnpj:String, id:UUID); null quando o fragmento não tem parâmetros
+     */
+    public String parameterTypesText() {
+        if (parameterTypes.isEmpty()) {
+            return null;
+        }
+        return parameterTypes.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .collect(Collectors.joining(", "));
+    }
+
+    public static Map<String, String> parseParameterTypes(String text) {
+        if (text == null || text.isBlank()) {
+            return Map.of();
+        }
+        Map<String, String> types = new TreeMap<>();
+        for (String entry : text.split(",")) {
+            String[] parts = entry.split(":", 2);
+            types.put(parts[0].trim(), parts.length > 1 ? parts[1].trim() : "Object");
+        }
+        return Collections.unmodifiableMap(types);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.IndicatorDTO;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import lombok.Getter;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Regra de indicador compilada para uma classe de entidade específica.
+ * A condição já vem resolvida em um predicado tipado, sem reflection no caminho de avaliação.
+ */
+@Getter
+public class CompiledIndicatorRule {
+
+    private final IndicatorRule source;
+    private final Class<?> entityClass;
+    private final Predicate<Object> condition;
+    private final String error;
+
+    private CompiledIndicatorRule(IndicatorRule source, Class<?> entityClass, Predicate<Object> condition, String error) {
+        // Cópia desacoplada da entidade gerenciada, usada para detectar alterações na regra
+        this.source = IndicatorRule.builder()
+                .id(source.getId())
+                .ruleKey(source.getRuleKey())
+                .name(source.getName())
+                .description(source.getDescription())
+                .icon(source.getIcon())
+                .context(source.getContext())
+                .conditionField(source.getConditionField())
+                .conditionOperator(source.getConditionOperator())
+                .conditionValue(source.getConditionValue())
+                .build();
+        this.entityClass = entityClass;
+        this.condition = condition;
+        this.error = error;
+    }
+
+    public static CompiledIndicatorRule of(IndicatorRule rule, Class<?> entityClass, Predicate<Object> condition) {
+        return new CompiledIndicatorRule(rule, entityClass, condition, null);
+    }
+
+    public static CompiledIndicatorRule failed(IndicatorRule rule, Class<?> entityClass, String error) {
+        return new CompiledIndicatorRule(rule, entityClass, null, error);
+    }
+
+    public boolean isValid() {
+        return condition != null;
+    }
+
+    /**
+     * Indica se a regra ainda corresponde à versão compilada
+     */
+    public boolean isCompiledFrom(IndicatorRule rule) {
+        return Objects.equals(source.getRuleKey(), rule.getRuleKey())
+                && Objects.equals(source.getName(), rule.getName())
+                && Objects.equals(source.getDescription(), rule.getDescription())
+                && Objects.equals(source.getIcon(), rule.getIcon())
+                && Objects.equals(source.getConditionField(), rule.getConditionField())
+                && source.getConditionOperator() == rule.getConditionOperator()
+                && Objects.equals(source.getConditionValue(), rule.getConditionValue());
+    }
+
+    public IndicatorDTO evaluate(Object entity) {
+        return IndicatorDTO.builder()
+                .key(source.getRuleKey())
+                .name(source.getName())
+                .value(condition.test(entity))
+                .icon(source.getIcon())
+                .description(source.getDescription())
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.poc.query.dynamic.service;
+
+import io.micrometer.core.instrument.Tags;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plano compilado de uma combinação (query base, filtros, ordenação).
+ * Guarda a JPQL já montada, a query de contagem e os parâmetros esperados por cada uma.
+ */
+@Value
+@Builder
+public class CompiledQueryPlan {
+
+    /**
+     * Combinação (query base, filtros, ordenação) já normalizada que originou o plano
+     */
+    QueryPlanCache.PlanKey key;
+
+    String jpql;
+
+    /**
+     * Modelo da query de dados (base + filtros + ordenação), usado para derivar variantes sem reinterpretar a JPQL
+     */
+    JpqlQueryModel model;
+
+    /**
+     * Query de contagem; null quando a query base é agrupada e não pode ser contada
+     */
+    String countJpql;
+    Set<String> parameterNames;
+    Set<String> countParameterNames;
+
+    /**
+     * Mesmas condições da contagem, selecionando um literal por linha; usada na contagem limitada e na estimativa
+     */
+    String probeJpql;
+
+    /**
+     * Alias e entidade selecionados pela query base, quando ela seleciona a entidade inteira (ex: SELECT c FROM Customer c)
+     */
+    String rootAlias;
+    Class<?> rootEntityClass;
+
+    /**
+     * Ordenação para paginação por cursor; null quando a ordenação selecionada não permite keyset
+     */
+    KeysetOrder keysetOrder;
+
+    /**
+     * Modo projeção: colunas (atributos da entidade raiz) e o modelo que as seleciona; null quando a base não declara projeção
+     */
+    List<String> projectionColumns;
+    JpqlQueryModel projectionModel;
+
+    /**
+     * Tags de métricas da combinação (query base, filtros, ordenação)
+     */
+    Tags metricTags;
+
+    public boolean supportsProjection() {
+        return projectionModel != null;
+    }
+
+    public boolean selectsRootEntity() {
+        return rootAlias != null && rootEntityClass != null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.CountMode;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Página retornada pela query dinâmica junto com o total de registros.
+ * Cada linha traz o item selecionado pela query base na posição 0, seguido das colunas de indicadores (se houver).
+ */
+@Value
+@Builder(toBuilder = true)
+public class DynamicQueryPage {
+
+    List<Object[]> rows;
+
+    /**
+     * Colunas lidas no modo projeção, nas primeiras posições de cada linha; null quando a linha traz a entidade na posição 0
+     */
+    List<String> columns;
+    long total;
+
+    /**
+     * Como o total foi obtido. Em CAPPED e NONE o total é um mínimo; em ESTIMATED é a estimativa do banco
+     */
+    CountMode countMode;
+
+    /**
+     * Indica se o total veio da própria query de dados (COUNT(*) OVER ()) sem uma segunda ida ao banco
+     */
+    boolean totalFromWindow;
+
+    /**
+     * Cursor da próxima página na paginação por cursor; null quando não há mais registros ou no modo OFFSET
+     */
+    String nextCursor;
+
+    /**
+     * Quantidade de posições ocupadas pelos dados em cada linha; as colunas de indicadores começam depois delas
+     */
+    public int getDataColumnCount() {
+        return columns != null ? columns.size() : 1;
+    }
+}
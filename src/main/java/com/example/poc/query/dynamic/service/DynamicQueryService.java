@@ -1,146 +1,709 @@
 package com.example.poc.query.dynamic.service;
 
 import com.example.poc.query.dynamic.dto.AvailableQueriesDTO;
+import com.example.poc.query.dynamic.dto.CountMode;
 import com.example.poc.query.dynamic.dto.DynamicQueryRequestDTO;
+import com.example.poc.query.dynamic.dto.PaginationMode;
 import com.example.poc.query.dynamic.dto.QueryMetadataDTO;
-import com.example.poc.query.dynamic.entity.QueryBase;
-import com.example.poc.query.dynamic.entity.QueryFilter;
-import com.example.poc.query.dynamic.entity.QueryOrder;
-import com.example.poc.query.dynamic.repository.QueryBaseRepository;
-import com.example.poc.query.dynamic.repository.QueryFilterRepository;
-import com.example.poc.query.dynamic.repository.QueryOrderRepository;
+import com.example.poc.query.dynamic.dto.QueryPlanCacheStatsDTO;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DynamicQueryService {
 
-    private final QueryBaseRepository queryBaseRepository;
-    private final QueryFilterRepository queryFilterRepository;
-    private final QueryOrderRepository queryOrderRepository;
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<![:\\w]):([A-Za-z_][A-Za-z0-9_]*)");
+
     private final EntityManager entityManager;
+    private final QueryPlanCache queryPlanCache;
+    private final QueryMetadataRegistry queryMetadataRegistry;
+    private final RowCountEstimator rowCountEstimator;
+    private final QueryMetrics queryMetrics;
+    private final SlowQueryRecorder slowQueryRecorder;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+
+    @Value("${dynamic-query.count.window-function:true}")
+    private boolean windowCountEnabled;
+
+    @Value("${dynamic-query.count.default-mode:EXACT}")
+    private CountMode defaultCountMode;
+
+    @Value("${dynamic-query.count.cap:1000}")
+    private int countCap;
+
+    @Value("${dynamic-query.export.fetch-size:500}")
+    private int exportFetchSize;
+
+    @Value("${dynamic-query.export.clear-interval:500}")
+    private int exportClearInterval;
+
+    private volatile Boolean windowFunctionsSupported;
 
-    @Transactional(readOnly = true)
     public AvailableQueriesDTO getAvailableQueriesByContext(String context) {
-        List<QueryFilter> filters = queryFilterRepository.findByContextAndActiveTrue(context);
-        List<QueryOrder> orders = queryOrderRepository.findByContextAndActiveTrue(context);
+        QueryMetadataSnapshot snapshot = queryMetadataRegistry.current();
+        QueryMetadataSnapshot.ContextMetadata metadata = snapshot.getContext(context);
 
         return AvailableQueriesDTO.builder()
                 .context(context)
-                .filters(filters.stream()
+                .filters(metadata.getFilters().stream()
                         .map(f -> QueryMetadataDTO.builder()
                                 .nameUnique(f.getNameUnique())
                                 .description(f.getDescription())
                                 .build())
                         .toList())
-                .orders(orders.stream()
+                .orders(metadata.getOrders().stream()
                         .map(o -> QueryMetadataDTO.builder()
                                 .nameUnique(o.getNameUnique())
                                 .description(o.getDescription())
                                 .build())
                         .toList())
+                .version(snapshot.getVersion())
+                .etag(metadata.getETag())
                 .build();
     }
 
     @Transactional(readOnly = true)
     public List<?> executeDynamicQuery(DynamicQueryRequestDTO request) {
-        // 1. Buscar query base
-        QueryBase baseQuery = queryBaseRepository.findByNameUniqueAndActiveTrue(request.getBaseQueryName())
-                .orElseThrow(() -> new RuntimeException("Base query not found: " + request.getBaseQueryName()));
+        // 1. Obter o plano compilado (query base + filtros + ordenação)
+        CompiledQueryPlan plan = resolvePlan(request);
+
+        log.debug("Executing dynamic query: {}", plan.getJpql());
+
+        // 2. Criar a query e setar parâmetros
+        Query query = entityManager.createQuery(plan.getJpql());
+        bindParameters(query, plan.getParameterNames(), request.getParameters());
+
+        // 3. Aplicar paginação se solicitado
+        if (request.getPage() != null && request.getSize() != null) {
+            query.setFirstResult(request.getPage() * request.getSize());
+            query.setMaxResults(request.getSize());
+        }
 
-        // 2. Construir query completa
-        StringBuilder fullQuery = new StringBuilder(baseQuery.getQuery());
+        // 4. Executar query
+        return query.getResultList();
+    }
 
-        // 3. Adicionar filtros
-        if (request.getFilters() != null && !request.getFilters().isEmpty()) {
-            for (String filterName : request.getFilters()) {
-                QueryFilter filter = queryFilterRepository.findByNameUniqueAndActiveTrue(filterName)
-                        .orElseThrow(() -> new RuntimeException("Filter not found: " + filterName));
+    /**
+     * Executa a query dinâmica e obtém o total de registros conforme o modo de contagem da requisição.
+     * Na contagem exata, quando a query base seleciona a entidade inteira e o dialeto suporta funções de janela,
+     * o total vem de uma coluna COUNT(*) OVER () na mesma ida ao banco; caso contrário, a query de contagem é executada em separado.
+     * Nos demais modos é buscada uma linha a mais para saber se existe próxima página.
+     * Quando a contagem exata precisa de uma query separada, ela é iniciada em paralelo com a query de dados,
+     * em outra transação; se a página revelar o total, a contagem é cancelada e libera a sua conexão.
+     *
+     * @param projection Colunas de indicadores a adicionar à projeção, ou null para nenhuma
+     */
+    @Transactional(readOnly = true)
+    public DynamicQueryPage executeDynamicQueryPage(DynamicQueryRequestDTO request, IndicatorProjection projection) {
+        CompiledQueryPlan plan = resolvePlan(request);
+        if (projection != null && !plan.selectsRootEntity()) {
+            throw new IllegalStateException("Indicator projection requires a base query selecting a single entity: "
+                    + request.getBaseQueryName());
+        }
+        if (request.getPaginationMode() == PaginationMode.KEYSET) {
+            return executeKeysetPage(request, plan, projection);
+        }
 
-                fullQuery.append(" ").append(filter.getQueryFragment());
+        boolean projected = Boolean.TRUE.equals(request.getProjected()) && plan.supportsProjection();
+        JpqlQueryModel model = projected ? plan.getProjectionModel() : plan.getModel();
+        List<String> columns = projected ? plan.getProjectionColumns() : null;
+
+        CountMode countMode = countModeOf(request);
+        boolean paged = request.getPage() != null && request.getSize() != null;
+        boolean windowCount = paged && countMode == CountMode.EXACT && windowCountEnabled
+                && plan.selectsRootEntity() && dialectSupportsWindowFunctions();
+        boolean probeNextPage = paged && countMode != CountMode.EXACT;
+        CompletableFuture<Long> pendingCount = paged && countMode == CountMode.EXACT && !windowCount
+                ? startCount(plan, request)
+                : null;
+
+        List<String> extraSelections = new ArrayList<>();
+        if (projection != null) {
+            extraSelections.addAll(projection.getSelectExpressions());
+        }
+        if (windowCount) {
+            extraSelections.add("COUNT(" + plan.getRootAlias() + ") OVER ()");
+        }
+
+        String jpql = model.withExtraSelections(extraSelections).toJpql();
+
+        log.debug("Executing dynamic query page: {}", jpql);
+
+        Timer.Sample execution;
+        List<Object[]> rows;
+        try {
+            Query query = createDataQuery(jpql, projected);
+            bindParameters(query, plan.getParameterNames(), request.getParameters());
+            if (projection != null) {
+                projection.getParameters().forEach(query::setParameter);
+            }
+            if (paged) {
+                query.setFirstResult(request.getPage() * request.getSize());
+                query.setMaxResults(probeNextPage ? request.getSize() + 1 : request.getSize());
             }
+
+            execution = queryMetrics.start();
+            rows = toRows(query.getResultList());
+        } catch (RuntimeException e) {
+            cancelCount(pendingCount);
+            throw e;
         }
+        long duration = queryMetrics.stopExecution(execution, plan.getMetricTags(), "offset", rows.size());
+        slowQueryRecorder.record("offset", plan, jpql, request.getParameters(), duration, rows.size());
 
-        // 4. Adicionar ordenação
-        if (request.getOrder() != null && !request.getOrder().isBlank()) {
-            QueryOrder order = queryOrderRepository.findByNameUniqueAndActiveTrue(request.getOrder())
-                    .orElseThrow(() -> new RuntimeException("Order not found: " + request.getOrder()));
+        if (!paged) {
+            return exactPage(rows, columns, rows.size());
+        }
+        if (windowCount && !rows.isEmpty()) {
+            Object[] firstRow = rows.get(0);
+            return DynamicQueryPage.builder()
+                    .rows(rows)
+                    .columns(columns)
+                    .total(((Number) firstRow[firstRow.length - 1]).longValue())
+                    .countMode(CountMode.EXACT)
+                    .totalFromWindow(true)
+                    .build();
+        }
 
-            fullQuery.append(" ").append(order.getQueryFragment());
+        boolean hasNext = probeNextPage && rows.size() > request.getSize();
+        if (hasNext) {
+            rows = new ArrayList<>(rows.subList(0, request.getSize()));
+        }
+        long offset = (long) request.getPage() * request.getSize();
+        boolean lastPage = probeNextPage ? !hasNext : rows.size() < request.getSize();
+        if (lastPage && (!rows.isEmpty() || request.getPage() == 0)) {
+            // Última página alcançada: o total é exato sem precisar contar
+            cancelCount(pendingCount);
+            return exactPage(rows, columns, offset + rows.size());
+        }
+
+        // Dialeto sem suporte, página além do fim ou modo de contagem aproximado
+        return resolveTotal(plan, request, countMode, rows, offset + rows.size() + (hasNext ? 1 : 0), pendingCount)
+                .columns(columns)
+                .build();
+    }
+
+    /**
+     * Percorre todos os resultados da query dinâmica sem materializá-los em memória.
+     * As linhas são lidas do cursor JDBC em lotes (fetch size) e o contexto de persistência é limpo periodicamente,
+     * então o consumo de memória não depende da quantidade de linhas. A paginação da requisição é ignorada.
+     *
+     * @param projection  Colunas de indicadores a adicionar à projeção, ou null para nenhuma
+     * @param rowConsumer Recebe cada linha no mesmo formato de executeDynamicQueryPage (dados seguidos dos indicadores)
+     * @return Quantidade de linhas lidas
+     */
+    @Transactional(readOnly = true)
+    public long streamDynamicQuery(DynamicQueryRequestDTO request, IndicatorProjection projection,
+                                   Consumer<Object[]> rowConsumer) {
+        CompiledQueryPlan plan = resolvePlan(request);
+        if (projection != null && !plan.selectsRootEntity()) {
+            throw new IllegalStateException("Indicator projection requires a base query selecting a single entity: "
+                    + request.getBaseQueryName());
         }
 
-        log.info("Executing dynamic query: {}", fullQuery);
+        boolean projected = Boolean.TRUE.equals(request.getProjected()) && plan.supportsProjection();
+        JpqlQueryModel model = projected ? plan.getProjectionModel() : plan.getModel();
+        String jpql = model.withExtraSelections(projection != null ? projection.getSelectExpressions() : List.of())
+                .toJpql();
 
-        // 5. Criar e configurar a query
-        Query query = entityManager.createQuery(fullQuery.toString());
+        log.debug("Streaming dynamic query (fetch size {}): {}", exportFetchSize, jpql);
 
-        // 6. Setar parâmetros
-        if (request.getParameters() != null && !request.getParameters().isEmpty()) {
-            for (Map.Entry<String, Object> param : request.getParameters().entrySet()) {
-                Object convertedValue = convertParameterType(param.getKey(), param.getValue());
-                query.setParameter(param.getKey(), convertedValue);
-                log.info("Setting parameter: {} = {} (type: {})", param.getKey(), convertedValue,
-                        convertedValue != null ? convertedValue.getClass().getSimpleName() : "null");
+        Query query = entityManager.createQuery(jpql);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        bindParameters(query, plan.getParameterNames(), request.getParameters());
+        if (projection != null) {
+            projection.getParameters().forEach(query::setParameter);
+        }
+
+        Timer.Sample execution = queryMetrics.start();
+        long count = 0;
+        try (Stream<?> results = query.getResultStream()) {
+            Iterator<?> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                Object result = iterator.next();
+                rowConsumer.accept(result instanceof Object[] columns ? columns : new Object[]{result});
+                if (++count % exportClearInterval == 0) {
+                    // Libera as entidades já processadas para manter o heap constante
+                    entityManager.clear();
+                }
             }
+        } finally {
+            long duration = queryMetrics.stopExecution(execution, plan.getMetricTags(), "stream", count);
+            slowQueryRecorder.record("stream", plan, jpql, request.getParameters(), duration, count);
         }
+        return count;
+    }
 
-        // 7. Aplicar paginação se solicitado
-        if (request.getPage() != null && request.getSize() != null) {
-            query.setFirstResult(request.getPage() * request.getSize());
-            query.setMaxResults(request.getSize());
+    /**
+     * Paginação por cursor: em vez de OFFSET, filtra as linhas posteriores à última linha da página anterior.
+     * Busca uma linha a mais para saber se existe próxima página.
+     */
+    private DynamicQueryPage executeKeysetPage(DynamicQueryRequestDTO request, CompiledQueryPlan plan,
+                                               IndicatorProjection projection) {
+        KeysetOrder keysetOrder = plan.getKeysetOrder();
+        if (keysetOrder == null) {
+            throw new RuntimeException("Keyset pagination not supported for query: " + request.getBaseQueryName()
+                    + (request.getOrder() != null ? " with order " + request.getOrder() : ""));
         }
 
-        // 8. Executar query
-        return query.getResultList();
+        boolean projected = Boolean.TRUE.equals(request.getProjected()) && plan.supportsProjection();
+        List<String> columns = projected ? plan.getProjectionColumns() : null;
+
+        String scope = cursorScope(request);
+        Map<String, Object> seekParameters = new LinkedHashMap<>();
+        JpqlQueryModel model = (projected ? plan.getProjectionModel() : plan.getModel())
+                .withOrderBy(keysetOrder.orderItems());
+        boolean firstPage = request.getCursor() == null || request.getCursor().isBlank();
+        CountMode countMode = countModeOf(request);
+        if (!firstPage) {
+            Object[] values = keysetOrder.decodeCursor(scope, request.getCursor());
+            model = model.withPredicate(keysetOrder.seekPredicate(values, seekParameters));
+        }
+        // A partir da segunda página o total sempre depende da contagem
+        CompletableFuture<Long> pendingCount = !firstPage && countMode == CountMode.EXACT
+                ? startCount(plan, request)
+                : null;
+
+        List<String> extraSelections = projection != null ? projection.getSelectExpressions() : List.of();
+        String jpql = model.withExtraSelections(extraSelections).toJpql();
+
+        log.debug("Executing dynamic query page (keyset): {}", jpql);
+
+        Timer.Sample execution;
+        List<Object[]> rows;
+        try {
+            Query query = createDataQuery(jpql, projected);
+            bindParameters(query, plan.getParameterNames(), request.getParameters());
+            if (projection != null) {
+                projection.getParameters().forEach(query::setParameter);
+            }
+            seekParameters.forEach(query::setParameter);
+            if (request.getSize() != null) {
+                query.setMaxResults(request.getSize() + 1);
+            }
+
+            execution = queryMetrics.start();
+            rows = toRows(query.getResultList());
+        } catch (RuntimeException e) {
+            cancelCount(pendingCount);
+            throw e;
+        }
+        long duration = queryMetrics.stopExecution(execution, plan.getMetricTags(), "keyset", rows.size());
+        slowQueryRecorder.record("keyset", plan, jpql, request.getParameters(), duration, rows.size());
+
+        String nextCursor = null;
+        if (request.getSize() != null && rows.size() > request.getSize()) {
+            rows = new ArrayList<>(rows.subList(0, request.getSize()));
+            Object[] lastRow = rows.get(rows.size() - 1);
+            nextCursor = projected
+                    ? keysetOrder.encodeCursor(scope, attribute -> lastRow[columns.indexOf(attribute)])
+                    : keysetOrder.encodeCursor(scope, lastRow[0]);
+        }
+
+        // Sem cursor e sem próxima página, a página já contém todos os registros
+        DynamicQueryPage.DynamicQueryPageBuilder page = firstPage && nextCursor == null
+                ? exactPage(rows, columns, rows.size()).toBuilder()
+                : resolveTotal(plan, request, countMode, rows, rows.size() + (nextCursor != null ? 1 : 0), pendingCount);
+        return page.columns(columns).nextCursor(nextCursor).build();
+    }
+
+    /**
+     * Obtém o total conforme o modo de contagem
+     *
+     * @param knownMinimum Quantidade mínima de registros já conhecida a partir da própria página
+     * @param pendingCount Contagem exata já iniciada em paralelo, ou null
+     */
+    private DynamicQueryPage.DynamicQueryPageBuilder resolveTotal(CompiledQueryPlan plan, DynamicQueryRequestDTO request,
+                                                                  CountMode countMode, List<Object[]> rows, long knownMinimum,
+                                                                  CompletableFuture<Long> pendingCount) {
+        Timer.Sample sample = queryMetrics.start();
+        try {
+            return doResolveTotal(plan, request, countMode, DynamicQueryPage.builder().rows(rows), knownMinimum,
+                    pendingCount);
+        } finally {
+            // Cada consulta de contagem, sondagem ou estimativa registra a própria lentidão ao executar
+            queryMetrics.stopCount(sample, plan.getMetricTags(), countMode.name());
+        }
+    }
+
+    private DynamicQueryPage.DynamicQueryPageBuilder doResolveTotal(CompiledQueryPlan plan, DynamicQueryRequestDTO request,
+                                                                    CountMode countMode,
+                                                                    DynamicQueryPage.DynamicQueryPageBuilder page,
+                                                                    long knownMinimum,
+                                                                    CompletableFuture<Long> pendingCount) {
+
+        switch (countMode) {
+            case NONE:
+                return page.total(knownMinimum).countMode(CountMode.NONE);
+            case CAPPED: {
+                if (knownMinimum > countCap) {
+                    return page.total(knownMinimum).countMode(CountMode.CAPPED);
+                }
+                long capped = countUpTo(plan, request, countCap + 1);
+                return capped > countCap
+                        ? page.total(Math.max(countCap, knownMinimum)).countMode(CountMode.CAPPED)
+                        : page.total(capped).countMode(CountMode.EXACT);
+            }
+            case ESTIMATED: {
+                long start = System.nanoTime();
+                OptionalLong estimate = rowCountEstimator.estimate(plan.getProbeJpql(),
+                        query -> bindParameters(query, plan.getCountParameterNames(), request.getParameters()));
+                slowQueryRecorder.record("estimate", plan, plan.getProbeJpql(), request.getParameters(),
+                        System.nanoTime() - start, 1);
+                if (estimate.isPresent()) {
+                    return page.total(Math.max(estimate.getAsLong(), knownMinimum)).countMode(CountMode.ESTIMATED);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+        long total = pendingCount != null ? awaitCount(pendingCount, plan, request) : countDynamicQuery(request);
+        return page.total(total).countMode(CountMode.EXACT);
+    }
+
+    /**
+     * Inicia a contagem exata em outra transação; null quando o paralelismo está desligado ou a query não tem contagem
+     */
+    private CompletableFuture<Long> startCount(CompiledQueryPlan plan, DynamicQueryRequestDTO request) {
+        if (!parallelQueryExecutor.isEnabled() || plan.getCountJpql() == null) {
+            return null;
+        }
+        return parallelQueryExecutor.submit(() -> executeCount(plan, request.getParameters()));
+    }
+
+    /**
+     * Cancela a contagem iniciada em paralelo quando a query de dados falha ou a página já revela o total,
+     * liberando a conexão dela
+     */
+    private void cancelCount(CompletableFuture<Long> pendingCount) {
+        if (pendingCount != null) {
+            pendingCount.cancel(true);
+        }
+    }
+
+    /**
+     * Aguarda a contagem iniciada em paralelo. Se ela falhar ou desistir por não conseguir conexão no pool,
+     * conta novamente na transação atual para não perder a página já buscada.
+     */
+    private long awaitCount(CompletableFuture<Long> pendingCount, CompiledQueryPlan plan, DynamicQueryRequestDTO request) {
+        try {
+            return pendingCount.join();
+        } catch (CompletionException e) {
+            log.warn("Parallel count failed for query {}, counting in the current transaction: {}",
+                    request.getBaseQueryName(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return executeCount(plan, request.getParameters());
+        }
+    }
+
+    /**
+     * Conta os registros parando no limite informado, sem percorrer o restante da tabela
+     */
+    private long countUpTo(CompiledQueryPlan plan, DynamicQueryRequestDTO request, int limit) {
+        log.debug("Executing capped count query (limit {}): {}", limit, plan.getProbeJpql());
+
+        Query query = entityManager.createQuery(plan.getProbeJpql());
+        bindParameters(query, plan.getCountParameterNames(), request.getParameters());
+        query.setMaxResults(limit);
+        long start = System.nanoTime();
+        int rows = query.getResultList().size();
+        slowQueryRecorder.record("capped-count", plan, plan.getProbeJpql(), request.getParameters(),
+                System.nanoTime() - start, rows);
+        return rows;
+    }
+
+    private CountMode countModeOf(DynamicQueryRequestDTO request) {
+        return request.getCountMode() != null ? request.getCountMode() : defaultCountMode;
+    }
+
+    /**
+     * Cria a query de dados; no modo projeção as linhas são somente leitura e não entram no dirty checking
+     */
+    private Query createDataQuery(String jpql, boolean projected) {
+        Query query = entityManager.createQuery(jpql);
+        if (projected) {
+            query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        }
+        return query;
+    }
+
+    private static DynamicQueryPage exactPage(List<Object[]> rows, List<String> columns, long total) {
+        return DynamicQueryPage.builder()
+                .rows(rows)
+                .columns(columns)
+                .total(total)
+                .countMode(CountMode.EXACT)
+                .build();
     }
 
     @Transactional(readOnly = true)
     public Long countDynamicQuery(DynamicQueryRequestDTO request) {
-        // 1. Buscar query base
-        QueryBase baseQuery = queryBaseRepository.findByNameUniqueAndActiveTrue(request.getBaseQueryName())
-                .orElseThrow(() -> new RuntimeException("Base query not found: " + request.getBaseQueryName()));
+        CompiledQueryPlan plan = resolvePlan(request);
+        if (plan.getCountJpql() == null) {
+            throw new RuntimeException("Count not supported for base query: " + request.getBaseQueryName());
+        }
+        return executeCount(plan, request.getParameters());
+    }
+
+    private long executeCount(CompiledQueryPlan plan, Map<String, Object> parameters) {
+        log.debug("Executing count query: {}", plan.getCountJpql());
 
-        // 2. Construir query de contagem
-        String originalQuery = baseQuery.getQuery();
-        String countQuery = originalQuery.replaceFirst("SELECT .+ FROM", "SELECT COUNT(c) FROM");
+        TypedQuery<Long> query = entityManager.createQuery(plan.getCountJpql(), Long.class);
+        bindParameters(query, plan.getCountParameterNames(), parameters);
 
-        StringBuilder fullQuery = new StringBuilder(countQuery);
+        long start = System.nanoTime();
+        Long total = query.getSingleResult();
+        slowQueryRecorder.record("count", plan, plan.getCountJpql(), parameters, System.nanoTime() - start, 1);
+        return total;
+    }
 
-        // 3. Adicionar filtros
-        if (request.getFilters() != null && !request.getFilters().isEmpty()) {
-            for (String filterName : request.getFilters()) {
-                QueryFilter filter = queryFilterRepository.findByNameUniqueAndActiveTrue(filterName)
-                        .orElseThrow(() -> new RuntimeException("Filter not found: " + filterName));
+    /**
+     * Busca o plano no cache ou compila a partir dos metadados do banco.
+     * Os filtros são combinados com AND, então a ordem em que chegam não muda o resultado: a chave usa os nomes
+     * sem repetição e em ordem alfabética, e combinações equivalentes geram exatamente a mesma JPQL.
+     */
+    public CompiledQueryPlan resolvePlan(DynamicQueryRequestDTO request) {
+        List<String> filters = request.getFilters() != null
+                ? request.getFilters().stream().map(String::trim).distinct().sorted().toList()
+                : List.of();
+        String order = request.getOrder() != null && !request.getOrder().isBlank() ? request.getOrder().trim() : null;
 
-                fullQuery.append(" ").append(filter.getQueryFragment());
+        QueryPlanCache.PlanKey key = new QueryPlanCache.PlanKey(request.getBaseQueryName(), filters, order);
+        return queryPlanCache.getOrCompile(key, () -> compilePlan(key));
+    }
+
+    /**
+     * Acertos e falhas do cache de planos da aplicação e, quando hibernate.generate_statistics está ativo,
+     * do cache de planos do Hibernate
+     */
+    public QueryPlanCacheStatsDTO getPlanCacheStats() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+
+        return QueryPlanCacheStatsDTO.builder()
+                .cachedPlans(queryPlanCache.size())
+                .planCacheHits(queryPlanCache.getHits())
+                .planCacheMisses(queryPlanCache.getMisses())
+                .hibernateStatisticsEnabled(statisticsEnabled)
+                .hibernateQueryPlanCacheHits(statisticsEnabled ? statistics.getQueryPlanCacheHitCount() : null)
+                .hibernateQueryPlanCacheMisses(statisticsEnabled ? statistics.getQueryPlanCacheMissCount() : null)
+                .preparedStatements(statisticsEnabled ? statistics.getPrepareStatementCount() : null)
+                .build();
+    }
+
+    /**
+     * Só registra o tempo de compilação de planos válidos: nomes desconhecidos vindos da requisição
+     * não viram tags, o que manteria na memória um timer por combinação inválida
+     */
+    private CompiledQueryPlan compilePlan(QueryPlanCache.PlanKey key) {
+        Timer.Sample sample = queryMetrics.start();
+        CompiledQueryPlan plan = doCompilePlan(key);
+        queryMetrics.stopPlanCompilation(sample, plan.getMetricTags());
+        return plan;
+    }
+
+    private CompiledQueryPlan doCompilePlan(QueryPlanCache.PlanKey key) {
+        QueryMetadataSnapshot snapshot = queryMetadataRegistry.current();
+
+        // 1. Buscar query base, já interpretada uma vez por versão do snapshot
+        if (snapshot.findBase(key.getBaseQueryName()).isEmpty()) {
+            throw new RuntimeException("Base query not found: " + key.getBaseQueryName());
+        }
+        JpqlQueryModel model = snapshot.findBaseModel(key.getBaseQueryName())
+                .orElseThrow(() -> new RuntimeException("Invalid base query: " + key.getBaseQueryName()));
+
+        // 2. Adicionar filtros como predicados do WHERE
+        // A forma compilada foi validada ao salvar o filtro; aqui não há interpretação do fragmento
+        for (String filterName : key.getFilters()) {
+            if (snapshot.findFilter(filterName).isEmpty()) {
+                throw new RuntimeException("Filter not found: " + filterName);
             }
+            String predicate = snapshot.findFilterPredicate(filterName)
+                    .orElseThrow(() -> new RuntimeException("Invalid filter: " + filterName));
+
+            model = model.withPredicate(predicate);
         }
 
-        log.info("Executing count query: {}", fullQuery);
+        // 3. Contagem e prova partem do modelo sem ordenação
+        String countJpql = model.isGrouped() ? null : model.toCountJpql();
+        String probeJpql = model.toProbeJpql();
 
-        // 4. Criar e configurar a query
-        TypedQuery<Long> query = entityManager.createQuery(fullQuery.toString(), Long.class);
+        // 4. Adicionar ordenação (apenas na query de dados)
+        if (key.getOrder() != null) {
+            if (snapshot.findOrder(key.getOrder()).isEmpty()) {
+                throw new RuntimeException("Order not found: " + key.getOrder());
+            }
+            String orderItems = snapshot.findOrderItems(key.getOrder())
+                    .orElseThrow(() -> new RuntimeException("Invalid order: " + key.getOrder()));
+
+            model = model.withOrderBy(orderItems);
+        }
+
+        String jpql = model.toJpql();
+        // Base, filtros e ordenação já foram encontrados no snapshot: as tags só usam nomes cadastrados
+        Tags metricTags = QueryMetrics.planTags(key.getBaseQueryName(), key.getFilters(), key.getOrder());
+
+        CompiledQueryPlan.CompiledQueryPlanBuilder plan = CompiledQueryPlan.builder()
+                .key(key)
+                .jpql(jpql)
+                .model(model)
+                .metricTags(metricTags)
+                .countJpql(countJpql)
+                .probeJpql(probeJpql)
+                .parameterNames(extractParameterNames(jpql))
+                .countParameterNames(extractParameterNames(probeJpql));
+
+        // 5. Identificar a entidade raiz quando a base seleciona a entidade inteira
+        Optional<EntityType<?>> rootEntity = model.selectsRootEntity()
+                ? findEntityType(model.getRootEntity())
+                : Optional.empty();
+        if (rootEntity.isPresent()) {
+            EntityType<?> entityType = rootEntity.get();
+            KeysetOrder keysetOrder = KeysetOrder.parse(model.getOrderBy(), model.getRootAlias(), entityType).orElse(null);
+            plan.rootAlias(model.getRootAlias())
+                    .rootEntityClass(entityType.getJavaType())
+                    .keysetOrder(keysetOrder);
+
+            // 6. Modo projeção: seleciona apenas as colunas declaradas na query base
+            Optional<List<String>> projection = snapshot.findBaseProjection(key.getBaseQueryName());
+            if (projection.isPresent()) {
+                String alias = model.getRootAlias();
+                List<String> columns = projectionColumns(key.getBaseQueryName(), projection.get(), entityType, keysetOrder);
+                plan.projectionColumns(columns)
+                        .projectionModel(model.withSelections(columns.stream()
+                                .map(column -> alias + "." + column)
+                                .toList()));
+            }
+        }
+
+        return plan.build();
+    }
+
+    /**
+     * Valida as colunas da projeção e acrescenta as chaves de ordenação do cursor que não foram declaradas
+     */
+    private static List<String> projectionColumns(String baseQueryName, List<String> declared, EntityType<?> entityType,
+                                                  KeysetOrder keysetOrder) {
+        List<String> columns = new ArrayList<>(declared);
+        for (String column : declared) {
+            Attribute<?, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(column);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid projection column '" + column + "' for base query: " + baseQueryName);
+            }
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                throw new RuntimeException("Projection column '" + column + "' is not a basic attribute in base query: "
+                        + baseQueryName);
+            }
+        }
+        if (keysetOrder != null) {
+            keysetOrder.getKeys().stream()
+                    .map(KeysetOrder.SortKey::getAttribute)
+                    .filter(attribute -> !columns.contains(attribute))
+                    .forEach(columns::add);
+        }
+        return List.copyOf(columns);
+    }
 
-        // 5. Setar parâmetros
-        if (request.getParameters() != null && !request.getParameters().isEmpty()) {
-            for (Map.Entry<String, Object> param : request.getParameters().entrySet()) {
-                Object convertedValue = convertParameterType(param.getKey(), param.getValue());
-                query.setParameter(param.getKey(), convertedValue);
+    private boolean dialectSupportsWindowFunctions() {
+        Boolean supported = windowFunctionsSupported;
+        if (supported == null) {
+            supported = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect().supportsWindowFunctions();
+            windowFunctionsSupported = supported;
+        }
+        return supported;
+    }
+
+    private Optional<EntityType<?>> findEntityType(String entityName) {
+        return entityManager.getMetamodel().getEntities().stream()
+                .filter(entity -> entity.getName().equals(entityName))
+                .<EntityType<?>>map(entity -> entity)
+                .findFirst();
+    }
+
+    /**
+     * Identifica a combinação de query base e ordenação para a qual um cursor foi gerado
+     */
+    private static String cursorScope(DynamicQueryRequestDTO request) {
+        String order = request.getOrder() != null ? request.getOrder().trim() : "";
+        return request.getBaseQueryName() + "|" + order;
+    }
+
+    private static List<Object[]> toRows(List<?> results) {
+        List<Object[]> rows = new ArrayList<>(results.size());
+        for (Object result : results) {
+            rows.add(result instanceof Object[] columns ? columns : new Object[]{result});
+        }
+        return rows;
+    }
+
+    /**
+     * Seta apenas os parâmetros esperados pelo plano, ignorando os que não pertencem à query
+     */
+    private void bindParameters(Query query, Set<String> parameterNames, Map<String, Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return;
+        }
+
+        for (String name : parameterNames) {
+            if (parameters.containsKey(name)) {
+                Object convertedValue = convertParameterType(name, parameters.get(name));
+                query.setParameter(name, convertedValue);
+                // Apenas o tipo: os valores podem conter dados pessoais
+                log.trace("Setting parameter: {} (type: {})", name,
+                        convertedValue != null ? convertedValue.getClass().getSimpleName() : "null");
             }
         }
+    }
 
-        return query.getSingleResult();
+    /**
+     * Extrai os nomes dos parâmetros nomeados (:nome) de uma JPQL, ignorando literais entre aspas
+     */
+    static Set<String> extractParameterNames(String jpql) {
+        Set<String> names = new LinkedHashSet<>();
+        Matcher matcher = NAMED_PARAMETER.matcher(jpql.replaceAll("'[^']*'", "''"));
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return Collections.unmodifiableSet(names);
     }
 
     /**
@@ -0,0 +1,129 @@
+package com.example.poc.query.dynamic.service;
+
+import org.hibernate.proxy.HibernateProxy;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acesso pré-compilado a um campo de entidade via MethodHandle.
+ * Usa o getter do JavaBean quando existe (funciona com campos herdados e proxies do Hibernate)
+ * e cai para o próprio campo, procurando na hierarquia de classes, quando não há getter.
+ * Os acessores são criados uma única vez por (classe, campo) e reutilizados.
+ */
+public final class FieldAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Map<String, FieldAccessor>> CACHE = new ClassValue<>() {
+        @Override
+        protected Map<String, FieldAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final String fieldName;
+    private final Class<?> type;
+    private final MethodHandle getter;
+
+    private FieldAccessor(String fieldName, Class<?> type, MethodHandle getter) {
+        this.fieldName = fieldName;
+        this.type = type;
+        this.getter = getter;
+    }
+
+    /**
+     * Retorna o acessor do campo para a classe informada, criando-o na primeira chamada
+     *
+     * @throws IllegalArgumentException se a classe não possui o campo
+     */
+    public static FieldAccessor of(Class<?> entityClass, String fieldName) {
+        Map<String, FieldAccessor> accessors = CACHE.get(entityClass);
+        FieldAccessor accessor = accessors.get(fieldName);
+        if (accessor == null) {
+            accessor = create(entityClass, fieldName);
+            accessors.putIfAbsent(fieldName, accessor);
+        }
+        return accessor;
+    }
+
+    /**
+     * Classe real da entidade, ignorando o proxy do Hibernate
+     */
+    public static Class<?> entityClassOf(Object entity) {
+        if (entity instanceof HibernateProxy proxy) {
+            return proxy.getHibernateLazyInitializer().getPersistentClass();
+        }
+        return entity.getClass();
+    }
+
+    public Object get(Object entity) {
+        Object target = entity instanceof HibernateProxy proxy
+                ? proxy.getHibernateLazyInitializer().getImplementation()
+                : entity;
+        try {
+            return getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not read field '" + fieldName + "'", e);
+        }
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    private static FieldAccessor create(Class<?> entityClass, String fieldName) {
+        try {
+            Method readMethod = findReadMethod(entityClass, fieldName);
+            if (readMethod != null) {
+                MethodHandle handle = MethodHandles.publicLookup().unreflect(readMethod).asType(GETTER_TYPE);
+                return new FieldAccessor(fieldName, readMethod.getReturnType(), handle);
+            }
+
+            Field field = findField(entityClass, fieldName);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            return new FieldAccessor(fieldName, field.getType(), handle);
+        } catch (IllegalAccessException | IntrospectionException e) {
+            throw new IllegalArgumentException(
+                    "Could not access field '" + fieldName + "' of " + entityClass.getSimpleName(), e);
+        }
+    }
+
+    private static Method findReadMethod(Class<?> entityClass, String fieldName) throws IntrospectionException {
+        for (PropertyDescriptor descriptor : Introspector.getBeanInfo(entityClass).getPropertyDescriptors()) {
+            Method readMethod = descriptor.getReadMethod();
+            if (descriptor.getName().equals(fieldName) && readMethod != null
+                    && Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                return readMethod;
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> entityClass, String fieldName) {
+        for (Class<?> current = entityClass; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException ignored) {
+                // Continua procurando na superclasse
+            }
+        }
+        throw new IllegalArgumentException("Field '" + fieldName + "' not found in " + entityClass.getSimpleName());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.poc.query.dynamic.service;
+
+/**
+ * Onde os indicadores são avaliados durante a busca
+ */
+public enum IndicatorEvaluationMode {
+
+    /**
+     * As entidades são carregadas e as regras avaliadas em Java
+     */
+    JAVA,
+
+    /**
+     * As regras viram colunas CASE WHEN na query e o banco devolve os indicadores prontos.
+     * Regras que não podem ser traduzidas fazem a página cair para a avaliação em Java.
+     */
+    SQL
+}
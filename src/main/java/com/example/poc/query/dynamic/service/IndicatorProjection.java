@@ -0,0 +1,42 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.IndicatorDTO;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regras de indicadores traduzidas para colunas de projeção JPQL (CASE WHEN ... THEN true ELSE false END).
+ * O banco devolve os indicadores já avaliados junto com cada linha.
+ */
+@Value
+public class IndicatorProjection {
+
+    List<IndicatorRule> rules;
+    List<String> selectExpressions;
+    Map<String, Object> parameters;
+
+    /**
+     * Monta os indicadores de uma linha a partir das colunas booleanas retornadas pela query
+     *
+     * @param row Linha retornada pela query
+     * @param offset Posição da primeira coluna de indicador na linha
+     */
+    public List<IndicatorDTO> toIndicators(Object[] row, int offset) {
+        List<IndicatorDTO> indicators = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            IndicatorRule rule = rules.get(i);
+            indicators.add(IndicatorDTO.builder()
+                    .key(rule.getRuleKey())
+                    .name(rule.getName())
+                    .value(Boolean.TRUE.equals(row[offset + i]))
+                    .icon(rule.getIcon())
+                    .description(rule.getDescription())
+                    .build());
+        }
+        return indicators;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Traduz regras de indicadores em expressões JPQL para serem avaliadas pelo banco.
+ * Os valores de comparação são sempre enviados como parâmetros, nunca concatenados na query.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndicatorProjectionCompiler {
+
+    static final String PARAMETER_PREFIX = "ind_";
+
+    private final EntityManager entityManager;
+
+    /**
+     * Compila as regras para o alias/entidade informados.
+     * Retorna vazio quando alguma regra não pode ser expressa em JPQL; nesse caso a avaliação deve ser feita em Java.
+     */
+    public Optional<IndicatorProjection> compile(List<IndicatorRule> rules, String alias, Class<?> entityClass) {
+        EntityType<?> entityType;
+        try {
+            entityType = entityManager.getMetamodel().entity(entityClass);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        List<String> expressions = new ArrayList<>(rules.size());
+        Map<String, Object> parameters = new LinkedHashMap<>();
+
+        for (int i = 0; i < rules.size(); i++) {
+            IndicatorRule rule = rules.get(i);
+            String parameterName = PARAMETER_PREFIX + i;
+            Optional<String> predicate = toPredicate(rule, alias, entityType, parameterName, parameters);
+            if (predicate.isEmpty()) {
+                log.debug("Indicador '{}' não pode ser avaliado no banco; usando avaliação em Java", rule.getRuleKey());
+                return Optional.empty();
+            }
+            expressions.add("CASE WHEN " + predicate.get() + " THEN true ELSE false END");
+        }
+
+        return Optional.of(new IndicatorProjection(List.copyOf(rules), List.copyOf(expressions),
+                Collections.unmodifiableMap(parameters)));
+    }
+
+    private Optional<String> toPredicate(IndicatorRule rule, String alias, EntityType<?> entityType,
+                                         String parameterName, Map<String, Object> parameters) {
+        Attribute<?, ?> attribute;
+        try {
+            attribute = entityType.getAttribute(rule.getConditionField());
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+            return Optional.empty();
+        }
+
+        Class<?> fieldType = attribute.getJavaType();
+        String path = alias + "." + attribute.getName();
+        String value = rule.getConditionValue();
+
+        switch (rule.getConditionOperator()) {
+            case IS_TRUE:
+                return isBoolean(fieldType) ? Optional.of(path + " = true") : Optional.empty();
+            case IS_FALSE:
+                return isBoolean(fieldType) ? Optional.of(path + " = false") : Optional.empty();
+            case IS_NULL:
+                return Optional.of(path + " IS NULL");
+            case IS_NOT_NULL:
+                return Optional.of(path + " IS NOT NULL");
+            case EQUALS:
+            case NOT_EQUALS: {
+                Object constant = parse(fieldType, value);
+                if (constant == null) {
+                    return Optional.empty();
+                }
+                parameters.put(parameterName, constant);
+                return Optional.of(rule.getConditionOperator() == IndicatorRule.ConditionOperator.EQUALS
+                        ? path + " = :" + parameterName
+                        : "(" + path + " IS NULL OR " + path + " <> :" + parameterName + ")");
+            }
+            case CONTAINS: {
+                if (fieldType != String.class || value == null) {
+                    return Optional.empty();
+                }
+                parameters.put(parameterName, "%" + escapeLike(value.toLowerCase()) + "%");
+                return Optional.of("LOWER(" + path + ") LIKE :" + parameterName + " ESCAPE '\\'");
+            }
+            case GREATER_THAN:
+            case LESS_THAN: {
+                // Só empurra para o banco quando o valor cabe exatamente no tipo numérico/temporal do campo
+                if (fieldType == String.class || fieldType == Boolean.class || fieldType == boolean.class
+                        || !Comparable.class.isAssignableFrom(IndicatorRuleCompiler.boxed(fieldType))) {
+                    return Optional.empty();
+                }
+                Object constant = parse(fieldType, value);
+                if (constant == null) {
+                    return Optional.empty();
+                }
+                parameters.put(parameterName, constant);
+                String operator = rule.getConditionOperator() == IndicatorRule.ConditionOperator.GREATER_THAN ? " > " : " < ";
+                return Optional.of(path + operator + ":" + parameterName);
+            }
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private Object parse(Class<?> fieldType, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return IndicatorRuleCompiler.parseConstant(IndicatorRuleCompiler.boxed(fieldType), value);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static boolean isBoolean(Class<?> type) {
+        return type == Boolean.class || type == boolean.class;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Compila regras de indicadores em predicados por classe de entidade e mantém o resultado em cache.
+ * Uma regra é recompilada apenas quando sua definição muda ou quando é removida do cache.
+ */
+@Component
+@Slf4j
+public class IndicatorRuleCompiler {
+
+    private final Map<CompiledRuleKey, CompiledIndicatorRule> compiledRules = new ConcurrentHashMap<>();
+
+    public CompiledIndicatorRule compile(IndicatorRule rule, Class<?> entityClass) {
+        CompiledRuleKey key = new CompiledRuleKey(rule.getId(), entityClass);
+        CompiledIndicatorRule compiled = compiledRules.get(key);
+        if (compiled != null && compiled.isCompiledFrom(rule)) {
+            return compiled;
+        }
+
+        compiled = doCompile(rule, entityClass);
+        if (rule.getId() != null) {
+            compiledRules.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    public void evict(UUID ruleId) {
+        compiledRules.keySet().removeIf(key -> key.getRuleId().equals(ruleId));
+    }
+
+    public void evictAll() {
+        compiledRules.clear();
+    }
+
+    private CompiledIndicatorRule doCompile(IndicatorRule rule, Class<?> entityClass) {
+        try {
+            FieldAccessor accessor = FieldAccessor.of(entityClass, rule.getConditionField());
+            return CompiledIndicatorRule.of(rule, entityClass, buildCondition(rule, accessor));
+        } catch (RuntimeException e) {
+            log.error("Erro ao compilar indicador '{}' para {}: {}",
+                    rule.getRuleKey(), entityClass.getSimpleName(), e.getMessage());
+            return CompiledIndicatorRule.failed(rule, entityClass, e.getMessage());
+        }
+    }
+
+    /**
+     * Monta o predicado da regra. O valor de comparação é convertido uma única vez para o tipo declarado
+     * do campo, de modo que a avaliação por linha não faz parsing nem alocação.
+     */
+    private Predicate<Object> buildCondition(IndicatorRule rule, FieldAccessor accessor) {
+        Class<?> fieldType = boxed(accessor.getType());
+        String expectedValue = rule.getConditionValue();
+
+        return switch (rule.getConditionOperator()) {
+            case IS_TRUE -> entity -> Boolean.TRUE.equals(accessor.get(entity));
+            case IS_FALSE -> entity -> Boolean.FALSE.equals(accessor.get(entity));
+            case IS_NULL -> entity -> accessor.get(entity) == null;
+            case IS_NOT_NULL -> entity -> accessor.get(entity) != null;
+            case EQUALS -> equalsCondition(accessor, fieldType, expectedValue);
+            case NOT_EQUALS -> equalsCondition(accessor, fieldType, expectedValue).negate();
+            case CONTAINS -> containsCondition(accessor, fieldType, requireValue(rule));
+            case GREATER_THAN -> compareCondition(accessor, fieldType, requireValue(rule), true);
+            case LESS_THAN -> compareCondition(accessor, fieldType, requireValue(rule), false);
+        };
+    }
+
+    private Predicate<Object> equalsCondition(FieldAccessor accessor, Class<?> fieldType, String expectedValue) {
+        if (expectedValue == null) {
+            return entity -> false;
+        }
+
+        Object constant;
+        try {
+            constant = parseConstant(fieldType, expectedValue);
+        } catch (RuntimeException e) {
+            log.warn("Valor '{}' incompatível com o tipo {} do campo {}; a condição nunca será satisfeita",
+                    expectedValue, fieldType.getSimpleName(), accessor.getFieldName());
+            return entity -> false;
+        }
+
+        if (constant == null) {
+            // Tipo sem conversão conhecida: mantém a comparação textual
+            return entity -> {
+                Object fieldValue = accessor.get(entity);
+                return fieldValue != null && fieldValue.toString().equals(expectedValue);
+            };
+        }
+        if (constant instanceof BigDecimal decimal) {
+            return entity -> {
+                Object fieldValue = accessor.get(entity);
+                return fieldValue != null && decimal.compareTo((BigDecimal) fieldValue) == 0;
+            };
+        }
+        return entity -> constant.equals(accessor.get(entity));
+    }
+
+    private Predicate<Object> containsCondition(FieldAccessor accessor, Class<?> fieldType, String searchValue) {
+        String lowerSearch = searchValue.toLowerCase();
+        if (fieldType == String.class) {
+            return entity -> {
+                Object fieldValue = accessor.get(entity);
+                return fieldValue != null && containsIgnoreCase((String) fieldValue, lowerSearch);
+            };
+        }
+        return entity -> {
+            Object fieldValue = accessor.get(entity);
+            return fieldValue != null && containsIgnoreCase(fieldValue.toString(), lowerSearch);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate<Object> compareCondition(FieldAccessor accessor, Class<?> fieldType, String value, boolean greater) {
+        try {
+            if (isIntegral(fieldType) && isIntegralLiteral(value)) {
+                long constant = Long.parseLong(value.trim());
+                return entity -> {
+                    Object fieldValue = accessor.get(entity);
+                    return fieldValue != null && matches(Long.compare(((Number) fieldValue).longValue(), constant), greater);
+                };
+            }
+            if (fieldType == BigDecimal.class || fieldType == BigInteger.class) {
+                BigDecimal constant = new BigDecimal(value.trim());
+                return entity -> {
+                    Object fieldValue = accessor.get(entity);
+                    return fieldValue != null && matches(toBigDecimal(fieldValue).compareTo(constant), greater);
+                };
+            }
+            if (Number.class.isAssignableFrom(fieldType)) {
+                double constant = Double.parseDouble(value);
+                return entity -> {
+                    Object fieldValue = accessor.get(entity);
+                    return fieldValue != null && matches(Double.compare(((Number) fieldValue).doubleValue(), constant), greater);
+                };
+            }
+            if (Comparable.class.isAssignableFrom(fieldType) && fieldType != String.class && fieldType != Boolean.class) {
+                Comparable constant = (Comparable) parseConstant(fieldType, value);
+                if (constant != null) {
+                    return entity -> {
+                        Object fieldValue = accessor.get(entity);
+                        return fieldValue != null && matches(((Comparable) fieldValue).compareTo(constant), greater);
+                    };
+                }
+            }
+
+            // Campo textual ou sem tipo conhecido: compara numericamente o conteúdo do campo
+            double constant = Double.parseDouble(value);
+            return entity -> {
+                Object fieldValue = accessor.get(entity);
+                if (fieldValue == null) {
+                    return false;
+                }
+                try {
+                    return matches(Double.compare(Double.parseDouble(fieldValue.toString()), constant), greater);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            };
+        } catch (RuntimeException e) {
+            log.warn("Não foi possível comparar valores para o campo {}: valor '{}' incompatível com {}",
+                    accessor.getFieldName(), value, fieldType.getSimpleName());
+            return entity -> false;
+        }
+    }
+
+    /**
+     * Converte o valor textual da regra para o tipo do campo; retorna null para tipos sem conversão conhecida
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object parseConstant(Class<?> fieldType, String value) {
+        String trimmed = value.trim();
+        if (fieldType == String.class) return value;
+        if (fieldType == Boolean.class) return parseBoolean(trimmed);
+        if (fieldType == Integer.class) return Integer.valueOf(trimmed);
+        if (fieldType == Long.class) return Long.valueOf(trimmed);
+        if (fieldType == Short.class) return Short.valueOf(trimmed);
+        if (fieldType == Byte.class) return Byte.valueOf(trimmed);
+        if (fieldType == Double.class) return Double.valueOf(trimmed);
+        if (fieldType == Float.class) return Float.valueOf(trimmed);
+        if (fieldType == BigDecimal.class) return new BigDecimal(trimmed);
+        if (fieldType == BigInteger.class) return new BigInteger(trimmed);
+        if (fieldType == UUID.class) return UUID.fromString(trimmed);
+        if (fieldType == LocalDate.class) return LocalDate.parse(trimmed);
+        if (fieldType == LocalDateTime.class) return LocalDateTime.parse(trimmed);
+        if (fieldType == LocalTime.class) return LocalTime.parse(trimmed);
+        if (fieldType == Instant.class) return Instant.parse(trimmed);
+        if (fieldType == OffsetDateTime.class) return OffsetDateTime.parse(trimmed);
+        if (fieldType == ZonedDateTime.class) return ZonedDateTime.parse(trimmed);
+        if (fieldType == Character.class && trimmed.length() == 1) return trimmed.charAt(0);
+        if (fieldType.isEnum()) return Enum.valueOf((Class<? extends Enum>) fieldType, trimmed);
+        return null;
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value)) return Boolean.TRUE;
+        if ("false".equalsIgnoreCase(value)) return Boolean.FALSE;
+        throw new IllegalArgumentException("Invalid boolean value: " + value);
+    }
+
+    /**
+     * contains sem alocação; o termo procurado já deve estar em minúsculas
+     */
+    static boolean containsIgnoreCase(String text, String lowerSearch) {
+        int length = lowerSearch.length();
+        int max = text.length() - length;
+        for (int start = 0; start <= max; start++) {
+            int i = 0;
+            while (i < length && Character.toLowerCase(text.charAt(start + i)) == lowerSearch.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String requireValue(IndicatorRule rule) {
+        if (rule.getConditionValue() == null) {
+            throw new IllegalArgumentException("Condition value is required for operator " + rule.getConditionOperator());
+        }
+        return rule.getConditionValue();
+    }
+
+    private static boolean matches(int comparison, boolean greater) {
+        return greater ? comparison > 0 : comparison < 0;
+    }
+
+    private static boolean isIntegral(Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Short.class || type == Byte.class;
+    }
+
+    private static boolean isIntegralLiteral(String value) {
+        try {
+            Long.parseLong(value.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal((BigInteger) value);
+    }
+
+    static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == boolean.class) return Boolean.class;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return type;
+    }
+
+    @Value
+    static class CompiledRuleKey {
+        UUID ruleId;
+        Class<?> entityClass;
+    }
+}
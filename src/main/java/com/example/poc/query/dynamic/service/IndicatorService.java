@@ -8,9 +8,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -24,6 +26,9 @@ import java.util.stream.Collectors;
 public class IndicatorService {
 
     private final IndicatorRuleRepository indicatorRuleRepository;
+    private final IndicatorRuleCompiler indicatorRuleCompiler;
+    private final IndicatorProjectionCompiler indicatorProjectionCompiler;
+    private final QueryMetrics queryMetrics;
 
     /**
      * Avalia todos os indicadores ativos de um contexto para uma entidade
@@ -33,93 +38,90 @@ public class IndicatorService {
      * @return Lista de indicadores avaliados
      */
     public List<IndicatorDTO> evaluateIndicators(Object entity, String context) {
-        List<IndicatorRule> activeRules = indicatorRuleRepository
-                .findByContextAndActiveTrueOrderByDisplayOrderAsc(context);
-        List<IndicatorDTO> indicators = new ArrayList<>();
-
-        for (IndicatorRule rule : activeRules) {
-            try {
-                Boolean value = evaluateCondition(entity, rule);
-
-                IndicatorDTO indicator = IndicatorDTO.builder()
-                        .key(rule.getRuleKey())
-                        .name(rule.getName())
-                        .value(value)
-                        .icon(rule.getIcon())
-                        .description(rule.getDescription())
-                        .build();
-
-                indicators.add(indicator);
-            } catch (Exception e) {
-                log.error("Erro ao avaliar indicador '{}' para contexto '{}': {}",
-                         rule.getRuleKey(), context, e.getMessage());
-            }
-        }
-
-        return indicators;
+        return evaluateIndicators(List.of(entity), context).get(0);
     }
 
     /**
-     * Avalia a condição de um indicador para uma entidade qualquer usando reflection
+     * Avalia os indicadores ativos de um contexto para uma página inteira de entidades.
+     * As regras são carregadas uma única vez para todo o lote.
+     *
+     * @param entities As entidades a serem avaliadas
+     * @param context O contexto das regras (CUSTOMER, ORDER, PRODUCT, etc)
+     * @return Indicadores de cada entidade, na mesma ordem da lista de entrada
      */
-    private Boolean evaluateCondition(Object entity, IndicatorRule rule) throws Exception {
-        String fieldName = rule.getConditionField();
-        Object fieldValue = getFieldValue(entity, fieldName);
-
-        return switch (rule.getConditionOperator()) {
-            case IS_TRUE -> Boolean.TRUE.equals(fieldValue);
-            case IS_FALSE -> Boolean.FALSE.equals(fieldValue);
-            case IS_NULL -> fieldValue == null;
-            case IS_NOT_NULL -> fieldValue != null;
-            case EQUALS -> {
-                if (fieldValue == null) yield false;
-                String expectedValue = rule.getConditionValue();
-                yield fieldValue.toString().equals(expectedValue);
-            }
-            case NOT_EQUALS -> {
-                if (fieldValue == null) yield true;
-                String expectedValue = rule.getConditionValue();
-                yield !fieldValue.toString().equals(expectedValue);
-            }
-            case CONTAINS -> {
-                if (fieldValue == null) yield false;
-                String searchValue = rule.getConditionValue();
-                yield fieldValue.toString().toLowerCase().contains(searchValue.toLowerCase());
-            }
-            case GREATER_THAN -> {
-                if (fieldValue == null) yield false;
-                try {
-                    double numValue = Double.parseDouble(fieldValue.toString());
-                    double compareValue = Double.parseDouble(rule.getConditionValue());
-                    yield numValue > compareValue;
-                } catch (NumberFormatException e) {
-                    log.warn("Não foi possível comparar valores numéricos para o campo {}", fieldName);
-                    yield false;
+    public List<List<IndicatorDTO>> evaluateIndicators(List<?> entities, String context) {
+        if (entities.isEmpty()) {
+            return List.of();
+        }
+
+        List<IndicatorRule> activeRules = indicatorRuleRepository
+                .findByContextAndActiveTrueOrderByDisplayOrderAsc(context);
+
+        // Regras compiladas uma vez por classe de entidade no lote (a página pode misturar proxies e entidades)
+        Map<Class<?>, CompiledIndicatorRule[]> compiledByClass = new HashMap<>();
+        CompiledIndicatorRule[][] compiledByEntity = new CompiledIndicatorRule[entities.size()][];
+        List<List<IndicatorDTO>> results = new ArrayList<>(entities.size());
+        for (int e = 0; e < entities.size(); e++) {
+            compiledByEntity[e] = compiledByClass.computeIfAbsent(FieldAccessor.entityClassOf(entities.get(e)),
+                    entityClass -> compileRules(activeRules, entityClass, context));
+            results.add(new ArrayList<>(activeRules.size()));
+        }
+
+        // Cada regra percorre o lote inteiro e é cronometrada uma única vez, não a cada entidade
+        for (int i = 0; i < activeRules.size(); i++) {
+            IndicatorRule rule = activeRules.get(i);
+            boolean evaluated = false;
+            long start = System.nanoTime();
+            for (int e = 0; e < entities.size(); e++) {
+                CompiledIndicatorRule compiledRule = compiledByEntity[e][i];
+                if (compiledRule == null) {
+                    continue;
                 }
-            }
-            case LESS_THAN -> {
-                if (fieldValue == null) yield false;
+                evaluated = true;
                 try {
-                    double numValue = Double.parseDouble(fieldValue.toString());
-                    double compareValue = Double.parseDouble(rule.getConditionValue());
-                    yield numValue < compareValue;
-                } catch (NumberFormatException e) {
-                    log.warn("Não foi possível comparar valores numéricos para o campo {}", fieldName);
-                    yield false;
+                    results.get(e).add(compiledRule.evaluate(entities.get(e)));
+                } catch (Exception ex) {
+                    queryMetrics.incrementRuleErrors(context, rule.getRuleKey(), "evaluation");
+                    log.error("Erro ao avaliar indicador '{}' para contexto '{}': {}",
+                             rule.getRuleKey(), context, ex.getMessage());
                 }
             }
-        };
+            if (evaluated) {
+                queryMetrics.recordRuleEvaluation(context, rule.getRuleKey(), System.nanoTime() - start);
+            }
+        }
+        return results;
     }
 
     /**
-     * Obtém o valor de um campo da entidade usando reflection
-     * Genérico - funciona com qualquer classe
+     * Compila as regras ativas do contexto em colunas de projeção para serem avaliadas pelo banco
+     *
+     * @param context O contexto das regras (CUSTOMER, ORDER, PRODUCT, etc)
+     * @param alias Alias da entidade na query base (ex: "c")
+     * @param entityClass Classe da entidade selecionada pela query base
+     * @return A projeção, ou vazio se alguma regra só puder ser avaliada em Java
      */
-    private Object getFieldValue(Object entity, String fieldName) throws Exception {
-        Class<?> entityClass = entity.getClass();
-        Field field = entityClass.getDeclaredField(fieldName);
-        field.setAccessible(true);
-        return field.get(entity);
+    public Optional<IndicatorProjection> compileProjection(String context, String alias, Class<?> entityClass) {
+        List<IndicatorRule> activeRules = indicatorRuleRepository
+                .findByContextAndActiveTrueOrderByDisplayOrderAsc(context);
+        return indicatorProjectionCompiler.compile(activeRules, alias, entityClass);
+    }
+
+    /**
+     * Compila as regras para a classe da entidade; regras inválidas ficam null e são contadas uma vez por lote
+     */
+    private CompiledIndicatorRule[] compileRules(List<IndicatorRule> activeRules, Class<?> entityClass, String context) {
+        CompiledIndicatorRule[] compiledRules = new CompiledIndicatorRule[activeRules.size()];
+        for (int i = 0; i < activeRules.size(); i++) {
+            IndicatorRule rule = activeRules.get(i);
+            CompiledIndicatorRule compiledRule = indicatorRuleCompiler.compile(rule, entityClass);
+            if (compiledRule.isValid()) {
+                compiledRules[i] = compiledRule;
+            } else {
+                queryMetrics.incrementRuleErrors(context, rule.getRuleKey(), "compile");
+            }
+        }
+        return compiledRules;
     }
 
     // ===== CRUD de Regras de Indicadores =====
@@ -180,11 +182,13 @@ public class IndicatorService {
         existingRule.setDisplayOrder(dto.getDisplayOrder());
 
         IndicatorRule updatedRule = indicatorRuleRepository.save(existingRule);
+        indicatorRuleCompiler.evict(id);
         return IndicatorRuleDTO.fromEntity(updatedRule);
     }
 
     public void deleteRule(UUID id) {
         indicatorRuleRepository.deleteById(id);
+        indicatorRuleCompiler.evict(id);
     }
 }
 
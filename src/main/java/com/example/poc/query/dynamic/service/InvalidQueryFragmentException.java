@@ -0,0 +1,15 @@
+package com.example.poc.query.dynamic.service;
+
+/**
+ * Query base, filtro ou ordenação recusado ao salvar por não compilar junto às queries base do contexto
+ */
+public class InvalidQueryFragmentException extends RuntimeException {
+
+    public InvalidQueryFragmentException(String message) {
+        super(message);
+    }
+
+    public InvalidQueryFragmentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.poc.query.dynamic.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Modelo estruturado de uma JPQL (select, from, where, group by, having, order by).
+ * A query base é interpretada uma única vez e as formas de dados, contagem e prova são geradas a partir do modelo,
+ * sem reescrever o texto com expressões regulares a cada execução.
+ * As cláusulas são identificadas apenas fora de literais e de parênteses, então subqueries são preservadas.
+ * Os espaços fora de literais são normalizados, para que a mesma combinação de fragmentos gere sempre o mesmo texto
+ * e reaproveite o cache de planos do Hibernate e os prepared statements do driver.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class JpqlQueryModel {
+
+    private static final Pattern CLAUSE = Pattern.compile(
+            "\\b(SELECT|FROM|WHERE|GROUP\\s+BY|HAVING|ORDER\\s+BY)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DISTINCT = Pattern.compile("^DISTINCT\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ROOT = Pattern.compile("^(\\w+(?:\\.\\w+)*)\\s+(?:AS\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONSTRUCTOR = Pattern.compile("^NEW\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LEADING_CONNECTOR = Pattern.compile("^(AND|WHERE)\\b\\s*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LEADING_OR = Pattern.compile("^OR\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_BY = Pattern.compile("^ORDER\\s+BY\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TOP_LEVEL_OR = Pattern.compile("\\bOR\\b", Pattern.CASE_INSENSITIVE);
+
+    boolean distinct;
+    List<String> selections;
+    String from;
+    String rootEntity;
+    String rootAlias;
+    List<String> predicates;
+    String groupBy;
+    String having;
+    String orderBy;
+
+    /**
+     * Interpreta uma query completa (ex: SELECT c FROM Customer c WHERE c.deletedAt IS NULL)
+     *
+     * @throws IllegalArgumentException se a query não tiver SELECT e FROM na ordem esperada
+     */
+    public static JpqlQueryModel parse(String jpql) {
+        String text = canonical(jpql);
+        String masked = mask(text);
+
+        List<int[]> clauses = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Matcher matcher = CLAUSE.matcher(masked);
+        while (matcher.find()) {
+            clauses.add(new int[]{matcher.start(), matcher.end()});
+            names.add(matcher.group(1).toUpperCase().replaceAll("\\s+", " "));
+        }
+
+        if (names.size() < 2 || !names.get(0).equals("SELECT") || clauses.get(0)[0] != 0 || !names.get(1).equals("FROM")) {
+            throw new IllegalArgumentException("Query must start with SELECT ... FROM: " + jpql);
+        }
+        List<String> order = List.of("SELECT", "FROM", "WHERE", "GROUP BY", "HAVING", "ORDER BY");
+        for (int i = 1; i < names.size(); i++) {
+            if (order.indexOf(names.get(i)) <= order.indexOf(names.get(i - 1))) {
+                throw new IllegalArgumentException("Unexpected " + names.get(i) + " clause in query: " + jpql);
+            }
+        }
+
+        String select = null, from = null, where = null, groupBy = null, having = null, orderBy = null;
+        for (int i = 0; i < clauses.size(); i++) {
+            int end = i + 1 < clauses.size() ? clauses.get(i + 1)[0] : text.length();
+            String body = text.substring(clauses.get(i)[1], end).trim();
+            switch (names.get(i)) {
+                case "SELECT" -> select = body;
+                case "FROM" -> from = body;
+                case "WHERE" -> where = body;
+                case "GROUP BY" -> groupBy = body;
+                case "HAVING" -> having = body;
+                default -> orderBy = body;
+            }
+        }
+
+        Matcher distinctMatcher = DISTINCT.matcher(select);
+        boolean distinct = distinctMatcher.find();
+        if (distinct) {
+            select = select.substring(distinctMatcher.end());
+        }
+
+        Matcher root = ROOT.matcher(from);
+        if (select.isEmpty() || !root.find()) {
+            throw new IllegalArgumentException("Could not identify the root entity of query: " + jpql);
+        }
+
+        return new JpqlQueryModel(distinct, splitTopLevel(select), from, root.group(1), root.group(2),
+                where != null ? List.of(where) : List.of(), groupBy, having, orderBy);
+    }
+
+    /**
+     * Extrai a condição de um fragmento de filtro (ex: "AND c.active = true" vira "c.active = true")
+     *
+     * @throws IllegalArgumentException se o fragmento começa com OR, que não pode ser combinado com segurança
+     */
+    public static String predicateOf(String filterFragment) {
+        String text = canonical(filterFragment);
+        if (LEADING_OR.matcher(text).find()) {
+            throw new IllegalArgumentException("Filter fragment must not start with OR: " + filterFragment);
+        }
+        String predicate = LEADING_CONNECTOR.matcher(text).replaceFirst("").trim();
+        if (predicate.isEmpty()) {
+            throw new IllegalArgumentException("Empty filter fragment: " + filterFragment);
+        }
+        return predicate;
+    }
+
+    /**
+     * Extrai os itens de um fragmento de ordenação (ex: "ORDER BY c.name ASC" vira "c.name ASC")
+     */
+    public static String orderItemsOf(String orderFragment) {
+        String text = canonical(orderFragment);
+        Matcher matcher = ORDER_BY.matcher(text);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Order fragment must start with ORDER BY: " + orderFragment);
+        }
+        return text.substring(matcher.end()).trim();
+    }
+
+    public JpqlQueryModel withPredicate(String predicate) {
+        List<String> combined = new ArrayList<>(predicates);
+        combined.add(predicate);
+        return new JpqlQueryModel(distinct, selections, from, rootEntity, rootAlias,
+                Collections.unmodifiableList(combined), groupBy, having, orderBy);
+    }
+
+    /**
+     * @param orderItems Itens de ordenação sem o ORDER BY, ou null para remover a ordenação
+     */
+    public JpqlQueryModel withOrderBy(String orderItems) {
+        return new JpqlQueryModel(distinct, selections, from, rootEntity, rootAlias, predicates, groupBy, having, orderItems);
+    }
+
+    /**
+     * Substitui as colunas selecionadas pela query
+     */
+    public JpqlQueryModel withSelections(List<String> newSelections) {
+        return new JpqlQueryModel(distinct, List.copyOf(newSelections), from, rootEntity, rootAlias,
+                predicates, groupBy, having, orderBy);
+    }
+
+    /**
+     * Acrescenta colunas à projeção, depois das já selecionadas pela query
+     */
+    public JpqlQueryModel withExtraSelections(List<String> extraSelections) {
+        if (extraSelections.isEmpty()) {
+            return this;
+        }
+        List<String> combined = new ArrayList<>(selections);
+        combined.addAll(extraSelections);
+        return new JpqlQueryModel(distinct, Collections.unmodifiableList(combined), from, rootEntity, rootAlias,
+                predicates, groupBy, having, orderBy);
+    }
+
+    /**
+     * Indica se a query seleciona apenas a entidade raiz (ex: SELECT c FROM Customer c)
+     */
+    public boolean selectsRootEntity() {
+        return !distinct && selections.size() == 1 && selections.get(0).equals(rootAlias);
+    }
+
+    public boolean isGrouped() {
+        return groupBy != null || having != null;
+    }
+
+    public String toJpql() {
+        return render(selectClause(String.join(", ", selections)), orderBy);
+    }
+
+    /**
+     * Forma de contagem: conta a entidade raiz, ou seja, uma vez por linha; com DISTINCT conta a expressão selecionada
+     * (ou a entidade raiz quando há várias colunas ou construtor)
+     *
+     * @throws IllegalStateException se a query é agrupada
+     */
+    public String toCountJpql() {
+        if (isGrouped()) {
+            throw new IllegalStateException("Count is not supported for grouped queries");
+        }
+        // COUNT de uma coluna ignoraria as linhas em que ela é nula
+        String counted = distinct && selections.size() == 1 && !CONSTRUCTOR.matcher(selections.get(0)).find()
+                ? selections.get(0)
+                : rootAlias;
+        return render("SELECT COUNT(" + (distinct ? "DISTINCT " : "") + counted + ")", null);
+    }
+
+    /**
+     * Forma de prova: mesmas condições, uma linha por registro, sem ordenação e sem carregar colunas
+     */
+    public String toProbeJpql() {
+        if (distinct) {
+            return render(selectClause(String.join(", ", selections)), null);
+        }
+        return render("SELECT '1'", null);
+    }
+
+    /**
+     * Forma de plano: mesmas condições, agrupamento e ordenação, selecionando uma constante no lugar das colunas.
+     * Usada pelo EXPLAIN, que lê o plano como um único valor textual; o DISTINCT fica de fora
+     */
+    public String toPlanJpql() {
+        return render("SELECT '1'", orderBy);
+    }
+
+    private String selectClause(String selection) {
+        return "SELECT " + (distinct ? "DISTINCT " : "") + selection;
+    }
+
+    private String render(String select, String order) {
+        StringBuilder jpql = new StringBuilder(select).append(" FROM ").append(from);
+        if (!predicates.isEmpty()) {
+            List<String> conditions = new ArrayList<>(predicates.size());
+            for (String predicate : predicates) {
+                // Predicados com OR no nível superior precisam de parênteses para não alterar a precedência
+                conditions.add(predicates.size() > 1 && TOP_LEVEL_OR.matcher(mask(predicate)).find()
+                        ? "(" + predicate + ")"
+                        : predicate);
+            }
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (groupBy != null) {
+            jpql.append(" GROUP BY ").append(groupBy);
+        }
+        if (having != null) {
+            jpql.append(" HAVING ").append(having);
+        }
+        if (order != null) {
+            jpql.append(" ORDER BY ").append(order);
+        }
+        return jpql.toString();
+    }
+
+    /**
+     * Separa uma lista por vírgulas do nível superior, ignorando as que estão em literais e parênteses
+     */
+    static List<String> splitTopLevel(String text) {
+        String masked = mask(text);
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < masked.length(); i++) {
+            if (masked.charAt(i) == ',') {
+                parts.add(text.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start).trim());
+        return List.copyOf(parts);
+    }
+
+    /**
+     * Reduz cada sequência de espaços, tabulações e quebras de linha fora de literais a um único espaço
+     */
+    static String canonical(String text) {
+        StringBuilder canonical = new StringBuilder(text.length());
+        boolean quoted = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!quoted && Character.isWhitespace(c)) {
+                pendingSpace = canonical.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                canonical.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            canonical.append(c);
+        }
+        return canonical.toString();
+    }
+
+    /**
+     * Substitui por espaços o conteúdo de literais e de parênteses, preservando as posições do texto original
+     */
+    static String mask(String text) {
+        StringBuilder masked = new StringBuilder(text.length());
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '\'') {
+                    quoted = false;
+                    masked.append(depth > 0 ? ' ' : c);
+                } else {
+                    masked.append(' ');
+                }
+            } else if (c == '\'') {
+                quoted = true;
+                masked.append(depth > 0 ? ' ' : c);
+            } else if (c == '(') {
+                depth++;
+                masked.append(depth == 1 ? c : ' ');
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+                masked.append(depth == 0 ? c : ' ');
+            } else {
+                masked.append(depth > 0 ? ' ' : c);
+            }
+        }
+        return masked.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.poc.query.dynamic.service;
+
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ordenação usada na paginação por cursor (keyset), derivada do fragmento de ordenação selecionado.
+ * As chaves de ordenação são sempre complementadas pelo id da entidade para garantir uma ordem total.
+ * O cursor é um token opaco com o escopo (query base + ordenação) e os valores das chaves da última linha.
+ */
+@Value
+public class KeysetOrder {
+
+    static final String PARAMETER_PREFIX = "ks_";
+
+    private static final Pattern SORT_ITEM = Pattern.compile("^(\\w+)\\.(\\w+)(?:\\s+(ASC|DESC))?$",
+            Pattern.CASE_INSENSITIVE);
+    private static final String NULL_VALUE = "~";
+
+    List<SortKey> keys;
+
+    @Value
+    public static class SortKey {
+        String attribute;
+        String path;
+        Class<?> type;
+        boolean descending;
+        boolean identifier;
+    }
+
+    /**
+     * Interpreta os itens de ordenação (ex: c.name ASC, c.createdAt DESC).
+     * Retorna vazio quando alguma chave não é um atributo simples e comparável da entidade raiz.
+     *
+     * @param orderItems Itens de ordenação sem o ORDER BY, ou null para ordenar apenas pelo id
+     */
+    public static Optional<KeysetOrder> parse(String orderItems, String alias, EntityType<?> entityType) {
+        if (entityType.getIdType() == null) {
+            return Optional.empty();
+        }
+        SingularAttribute<?, ?> id = entityType.getId(entityType.getIdType().getJavaType());
+
+        List<SortKey> keys = new ArrayList<>();
+        if (orderItems != null) {
+            for (String item : orderItems.split(",")) {
+                Matcher sortItem = SORT_ITEM.matcher(item.trim());
+                if (!sortItem.matches() || !sortItem.group(1).equals(alias)) {
+                    return Optional.empty();
+                }
+                Optional<Attribute<?, ?>> attribute = findComparableAttribute(entityType, sortItem.group(2));
+                if (attribute.isEmpty()) {
+                    return Optional.empty();
+                }
+                boolean identifier = attribute.get().getName().equals(id.getName());
+                keys.add(new SortKey(attribute.get().getName(), alias + "." + attribute.get().getName(),
+                        attribute.get().getJavaType(), "DESC".equalsIgnoreCase(sortItem.group(3)), identifier));
+                if (identifier) {
+                    // O id já é único: chaves seguintes nunca desempatam
+                    return Optional.of(new KeysetOrder(List.copyOf(keys)));
+                }
+            }
+        }
+
+        keys.add(new SortKey(id.getName(), alias + "." + id.getName(), id.getJavaType(), false, true));
+        return Optional.of(new KeysetOrder(List.copyOf(keys)));
+    }
+
+    /**
+     * Itens de ordenação determinísticos; nulos sempre ao final para que o cursor funcione igual em qualquer banco
+     */
+    public String orderItems() {
+        List<String> items = new ArrayList<>(keys.size());
+        for (SortKey key : keys) {
+            items.add(key.getPath() + (key.isDescending() ? " DESC" : " ASC") + (key.isIdentifier() ? "" : " NULLS LAST"));
+        }
+        return String.join(", ", items);
+    }
+
+    /**
+     * Condição que seleciona as linhas posteriores à posição do cursor.
+     * Para chaves (k1, k2, id) gera: k1 depois de v1 OR (k1 = v1 AND k2 depois de v2) OR (k1 = v1 AND k2 = v2 AND id > v3)
+     *
+     * @param values     Valores das chaves decodificados do cursor
+     * @param parameters Recebe os parâmetros usados pela condição
+     */
+    public String seekPredicate(Object[] values, Map<String, Object> parameters) {
+        List<String> alternatives = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            SortKey key = keys.get(i);
+            if (values[i] == null) {
+                // Nulos ficam por último: nenhum valor vem depois de um nulo nesta chave
+                continue;
+            }
+
+            List<String> conditions = new ArrayList<>(i + 1);
+            for (int j = 0; j < i; j++) {
+                conditions.add(values[j] == null
+                        ? keys.get(j).getPath() + " IS NULL"
+                        : keys.get(j).getPath() + " = :" + PARAMETER_PREFIX + j);
+            }
+            String after = key.getPath() + (key.isDescending() ? " < :" : " > :") + PARAMETER_PREFIX + i;
+            conditions.add(key.isIdentifier() ? after : "(" + after + " OR " + key.getPath() + " IS NULL)");
+            alternatives.add(conditions.size() == 1 ? conditions.get(0) : "(" + String.join(" AND ", conditions) + ")");
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (values[i] != null) {
+                parameters.put(PARAMETER_PREFIX + i, values[i]);
+            }
+        }
+        return "(" + String.join(" OR ", alternatives) + ")";
+    }
+
+    /**
+     * Gera o cursor que aponta para a posição logo após a entidade informada
+     */
+    public String encodeCursor(String scope, Object entity) {
+        Class<?> entityClass = FieldAccessor.entityClassOf(entity);
+        return encodeCursor(scope, attribute -> FieldAccessor.of(entityClass, attribute).get(entity));
+    }
+
+    /**
+     * Gera o cursor a partir dos valores das chaves da última linha
+     *
+     * @param valueOf Retorna o valor de um atributo de ordenação da última linha
+     */
+    public String encodeCursor(String scope, Function<String, Object> valueOf) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        StringBuilder cursor = new StringBuilder(encoder.encodeToString(scope.getBytes(StandardCharsets.UTF_8)));
+        for (SortKey key : keys) {
+            Object value = valueOf.apply(key.getAttribute());
+            cursor.append('.').append(value == null ? NULL_VALUE
+                    : encoder.encodeToString(toText(value).getBytes(StandardCharsets.UTF_8)));
+        }
+        return cursor.toString();
+    }
+
+    /**
+     * Decodifica o cursor para os valores tipados das chaves de ordenação
+     *
+     * @throws RuntimeException se o cursor é inválido ou foi gerado para outra query/ordenação
+     */
+    public Object[] decodeCursor(String scope, String cursor) {
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length != keys.size() + 1) {
+            throw new RuntimeException("Invalid cursor");
+        }
+
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            if (!scope.equals(new String(decoder.decode(parts[0]), StandardCharsets.UTF_8))) {
+                throw new RuntimeException("Cursor does not match the requested query and order");
+            }
+
+            Object[] values = new Object[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                if (NULL_VALUE.equals(parts[i + 1])) {
+                    continue;
+                }
+                String text = new String(decoder.decode(parts[i + 1]), StandardCharsets.UTF_8);
+                values[i] = IndicatorRuleCompiler.parseConstant(IndicatorRuleCompiler.boxed(keys.get(i).getType()), text);
+                if (values[i] == null) {
+                    throw new RuntimeException("Invalid cursor");
+                }
+            }
+            if (values[keys.size() - 1] == null) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            return values;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new RuntimeException("Invalid cursor", e);
+        }
+    }
+
+    private static Optional<Attribute<?, ?>> findComparableAttribute(EntityType<?> entityType, String name) {
+        try {
+            Attribute<?, ?> attribute = entityType.getAttribute(name);
+            boolean comparable = attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC
+                    && Comparable.class.isAssignableFrom(IndicatorRuleCompiler.boxed(attribute.getJavaType()));
+            return comparable ? Optional.of(attribute) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String toText(Object value) {
+        return value instanceof Enum<?> constant ? constant.name() : value.toString();
+    }
+}
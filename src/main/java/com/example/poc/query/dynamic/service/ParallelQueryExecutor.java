@@ -0,0 +1,183 @@
+package com.example.poc.query.dynamic.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executa consultas independentes da query principal (ex: a contagem) em outra thread, cada uma na sua própria
+ * transação somente leitura e, portanto, na sua própria conexão.
+ * A concorrência é limitada para não esgotar o pool de conexões: com todas as threads ocupadas, a tarefa roda
+ * na thread de quem pediu, como se não houvesse paralelismo. No Java 21+ as tarefas usam virtual threads.
+ * Quem pede já segura uma conexão e vai aguardar o resultado; para não ficar preso esperando o pool, a tarefa
+ * roda na própria transação de quem pediu quando o pool não tem conexão livre, e desiste se não conseguir uma
+ * conexão em dynamic-query.parallel.acquire-timeout (quem pediu executa a consulta por conta própria).
+ * A ocupação do pool é publicada nas métricas executor.* com a tag name=dynamicQuery.
+ */
+@Component
+@Slf4j
+public class ParallelQueryExecutor {
+
+    private final EntityManager entityManager;
+    private final HikariDataSource hikariDataSource;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final Duration acquireTimeout;
+
+    public ParallelQueryExecutor(EntityManager entityManager, DataSource dataSource,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                 @Value("${dynamic-query.parallel.enabled:true}") boolean enabled,
+                                 @Value("${dynamic-query.parallel.max-concurrency:4}") int maxConcurrency,
+                                 @Value("${dynamic-query.parallel.acquire-timeout:250ms}") Duration acquireTimeout) {
+        this.entityManager = entityManager;
+        this.hikariDataSource = hikariOf(dataSource);
+        this.enabled = enabled;
+        this.acquireTimeout = acquireTimeout;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "dynamicQuery", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Inicia a tarefa em uma transação somente leitura. O resultado deve ser aguardado por quem pediu,
+     * que decide o que fazer em caso de falha (inclusive quando a tarefa desiste por falta de conexão).
+     * Cancelar o future interrompe o comando em execução no banco.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        ParallelQuery<T> query = new ParallelQuery<>();
+        Runnable run = () -> runQuery(query, task);
+        if (!hasIdleConnection()) {
+            // Sem conexão livre a tarefa só ficaria esperando o pool: roda já, na conexão de quem pediu
+            run.run();
+            return query;
+        }
+
+        CompletableFuture.delayedExecutor(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(query::abandonIfNotStarted);
+        executor.execute(run);
+        return query;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> void runQuery(ParallelQuery<T> query, Supplier<T> task) {
+        try {
+            T result = readOnlyTransaction.execute(status -> {
+                // A transação já tem a conexão; se a tarefa foi cancelada ou abandonada, nem executa a consulta
+                if (!query.start(entityManager.unwrap(Session.class))) {
+                    return null;
+                }
+                try {
+                    return task.get();
+                } finally {
+                    query.finish();
+                }
+            });
+            query.complete(result);
+        } catch (RuntimeException e) {
+            query.completeExceptionally(e);
+        }
+    }
+
+    private boolean hasIdleConnection() {
+        if (hikariDataSource == null) {
+            return true;
+        }
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        return pool == null || pool.getIdleConnections() > 0;
+    }
+
+    private static HikariDataSource hikariOf(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            log.warn("Could not inspect the connection pool: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        if (JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            return new VirtualThreadTaskExecutor("dynamic-query-").getVirtualThreadFactory();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dynamic-query-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    /**
+     * Resultado de uma consulta paralela e a sessão em que ela está executando. O cancelamento e a desistência
+     * por falta de conexão podem chegar antes de a consulta começar, durante a execução ou depois de terminada.
+     */
+    private class ParallelQuery<T> extends CompletableFuture<T> {
+
+        private Session session;
+        private boolean started;
+
+        synchronized boolean start(Session session) {
+            if (isDone()) {
+                return false;
+            }
+            this.started = true;
+            this.session = session;
+            return true;
+        }
+
+        synchronized void finish() {
+            this.session = null;
+        }
+
+        synchronized void abandonIfNotStarted() {
+            if (!started && completeExceptionally(new TimeoutException(
+                    "No connection acquired within " + acquireTimeout.toMillis() + " ms"))) {
+                log.debug("Parallel query abandoned, no connection acquired within {} ms", acquireTimeout.toMillis());
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            synchronized (this) {
+                if (session != null) {
+                    session.cancelQuery();
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.poc.query.dynamic.service;
+
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converte cada resultado do preview em um array de valores, na ordem de getColumns().
+ * Para entidades e DTOs as colunas são os campos declarados na hierarquia da classe, resolvidos uma única vez
+ * por classe e lidos via FieldAccessor; campos estáticos, transientes e internos do Hibernate ficam de fora.
+ * Valores simples (texto, números, datas...) viram uma única coluna "value".
+ */
+public final class PreviewRowMapper {
+
+    private static final PreviewRowMapper SCALAR = new PreviewRowMapper(List.of("value"), null);
+
+    private static final ClassValue<PreviewRowMapper> CACHE = new ClassValue<>() {
+        @Override
+        protected PreviewRowMapper computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private final List<String> columns;
+    private final FieldAccessor[] accessors;
+
+    private PreviewRowMapper(List<String> columns, FieldAccessor[] accessors) {
+        this.columns = columns;
+        this.accessors = accessors;
+    }
+
+    /**
+     * Retorna o mapeador da classe real do resultado (ignorando o proxy do Hibernate), criando-o na primeira chamada
+     */
+    public static PreviewRowMapper forResult(Object result) {
+        if (result == null) {
+            return SCALAR;
+        }
+        Class<?> type = FieldAccessor.entityClassOf(result);
+        return isScalar(type) ? SCALAR : CACHE.get(type);
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public Object[] map(Object result) {
+        if (accessors == null) {
+            return new Object[]{result};
+        }
+        Object[] values = new Object[accessors.length];
+        if (result == null) {
+            return values;
+        }
+        for (int i = 0; i < accessors.length; i++) {
+            values[i] = loadedValue(accessors[i].get(result));
+        }
+        return values;
+    }
+
+    /**
+     * Associações não carregadas não são inicializadas: o proxy vira o seu identificador e a coleção vira null
+     */
+    private static Object loadedValue(Object value) {
+        if (value == null || Hibernate.isInitialized(value)) {
+            return value;
+        }
+        return value instanceof HibernateProxy proxy ? proxy.getHibernateLazyInitializer().getIdentifier() : null;
+    }
+
+    private static PreviewRowMapper create(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+
+        // Campos da superclasse primeiro, na ordem de declaração
+        List<String> columns = new ArrayList<>();
+        List<FieldAccessor> accessors = new ArrayList<>();
+        for (Class<?> current : hierarchy) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || field.getName().startsWith("$$_hibernate_") || columns.contains(field.getName())) {
+                    continue;
+                }
+                columns.add(field.getName());
+                accessors.add(FieldAccessor.of(type, field.getName()));
+            }
+        }
+        return new PreviewRowMapper(List.copyOf(columns), accessors.toArray(FieldAccessor[]::new));
+    }
+
+    private static boolean isScalar(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type.isArray()
+                || CharSequence.class.isAssignableFrom(type)
+                || Number.class.isAssignableFrom(type)
+                || Boolean.class == type
+                || Character.class == type
+                || UUID.class == type
+                || TemporalAccessor.class.isAssignableFrom(type)
+                || Date.class.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.poc.query.dynamic.service;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converte linhas de uma projeção por colunas em objetos (ex: CustomerDTO) usando os setters do JavaBean.
+ * Construtor e setters são resolvidos uma única vez por (classe, colunas); colunas sem setter são ignoradas.
+ */
+public final class ProjectionMapper<T> {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<Map<List<String>, ProjectionMapper<?>>> CACHE = new ClassValue<>() {
+        @Override
+        protected Map<List<String>, ProjectionMapper<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final MethodHandle[] setters;
+
+    private ProjectionMapper(Class<T> type, MethodHandle constructor, MethodHandle[] setters) {
+        this.type = type;
+        this.constructor = constructor;
+        this.setters = setters;
+    }
+
+    /**
+     * Retorna o mapeador da classe para as colunas informadas, criando-o na primeira chamada
+     *
+     * @throws IllegalArgumentException se a classe não tem construtor público sem argumentos
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ProjectionMapper<T> of(Class<T> type, List<String> columns) {
+        return (ProjectionMapper<T>) CACHE.get(type).computeIfAbsent(List.copyOf(columns), key -> create(type, key));
+    }
+
+    /**
+     * Cria o objeto a partir das primeiras posições da linha, na mesma ordem das colunas
+     */
+    public T map(Object[] row) {
+        try {
+            Object target = constructor.invokeExact();
+            for (int i = 0; i < setters.length; i++) {
+                if (setters[i] != null) {
+                    setters[i].invokeExact(target, row[i]);
+                }
+            }
+            return type.cast(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not map projection row to " + type.getSimpleName(), e);
+        }
+    }
+
+    private static <T> ProjectionMapper<T> create(Class<T> type, List<String> columns) {
+        try {
+            MethodHandle constructor = MethodHandles.publicLookup()
+                    .findConstructor(type, MethodType.methodType(void.class))
+                    .asType(CONSTRUCTOR_TYPE);
+
+            Map<String, Method> writeMethods = new ConcurrentHashMap<>();
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (descriptor.getWriteMethod() != null) {
+                    writeMethods.put(descriptor.getName(), descriptor.getWriteMethod());
+                }
+            }
+
+            MethodHandle[] setters = new MethodHandle[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                Method writeMethod = writeMethods.get(columns.get(i));
+                if (writeMethod != null) {
+                    setters[i] = MethodHandles.publicLookup().unreflect(writeMethod).asType(SETTER_TYPE);
+                }
+            }
+            return new ProjectionMapper<>(type, constructor, setters);
+        } catch (NoSuchMethodException | IllegalAccessException | IntrospectionException e) {
+            throw new IllegalArgumentException("Could not create projection mapper for " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.poc.query.dynamic.service;
 
 import com.example.poc.query.dynamic.dto.*;
 import com.example.poc.query.dynamic.entity.QueryBase;
+import com.example.poc.query.dynamic.event.QueryConfigChangedEvent;
 import com.example.poc.query.dynamic.entity.QueryFilter;
 import com.example.poc.query.dynamic.entity.QueryOrder;
 import com.example.poc.query.dynamic.repository.QueryBaseRepository;
@@ -9,13 +10,21 @@ import com.example.poc.query.dynamic.repository.QueryFilterRepository;
 import com.example.poc.query.dynamic.repository.QueryOrderRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Parameter;
 import jakarta.persistence.Query;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,10 +35,30 @@ public class QueryConfigService {
     private final QueryBaseRepository queryBaseRepository;
     private final QueryFilterRepository queryFilterRepository;
     private final QueryOrderRepository queryOrderRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RowCountEstimator rowCountEstimator;
+    private final QueryPreviewExecutor queryPreviewExecutor;
+    private final QueryPlanExplainer queryPlanExplainer;
+    private final QueryFragmentValidator queryFragmentValidator;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${dynamic-query.preview.timeout:5s}")
+    private Duration previewTimeout;
+
+    @Value("${dynamic-query.preview.default-rows:10}")
+    private int previewDefaultRows;
+
+    @Value("${dynamic-query.preview.max-rows:100}")
+    private int previewMaxRows;
+
+    @Value("${dynamic-query.preview.count-mode:EXACT}")
+    private CountMode previewCountMode;
+
+    @Value("${dynamic-query.count.cap:1000}")
+    private int countCap;
+
     // QueryBase operations
     @Transactional(readOnly = true)
     public List<QueryBaseDTO> getAllQueryBases() {
@@ -45,33 +74,84 @@ public class QueryConfigService {
 
     @Transactional
     public QueryBaseDTO createQueryBase(QueryBaseDTO dto) {
+        queryFragmentValidator.validateBase(dto.getQuery());
         QueryBase entity = QueryBase.builder()
                 .nameUnique(dto.getNameUnique())
                 .context(dto.getContext())
                 .query(dto.getQuery())
+                .projection(dto.getProjection())
                 .description(dto.getDescription())
                 .active(dto.getActive() != null ? dto.getActive() : true)
                 .build();
-        return toQueryBaseDTO(queryBaseRepository.save(entity));
+        QueryBase saved = queryBaseRepository.save(entity);
+        publishConfigChanged(saved.getContext());
+        return toQueryBaseDTO(saved);
     }
 
     @Transactional
     public QueryBaseDTO updateQueryBase(UUID id, QueryBaseDTO dto) {
         QueryBase entity = queryBaseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("QueryBase not found"));
+        queryFragmentValidator.validateBase(dto.getQuery());
+        String previousContext = entity.getContext();
+        boolean shapeChanged = !Objects.equals(previousContext, dto.getContext())
+                || !Objects.equals(entity.getQuery(), dto.getQuery());
 
         entity.setNameUnique(dto.getNameUnique());
         entity.setContext(dto.getContext());
         entity.setQuery(dto.getQuery());
+        entity.setProjection(dto.getProjection());
         entity.setDescription(dto.getDescription());
         entity.setActive(dto.getActive());
 
-        return toQueryBaseDTO(queryBaseRepository.save(entity));
+        QueryBase saved = queryBaseRepository.save(entity);
+        if (shapeChanged) {
+            // New alias, root entity or context: the saved filters and orders must still compile
+            revalidateFragments(saved.getContext());
+            if (!Objects.equals(previousContext, saved.getContext())) {
+                revalidateFragments(previousContext);
+            }
+        }
+        publishConfigChanged(shapeChanged ? null : saved.getContext());
+        return toQueryBaseDTO(saved);
+    }
+
+    /**
+     * Recompiles the active filters and orders of the context against its current base queries and stores
+     * the new compiled form, rejecting the change when any of them no longer compiles.
+     * A context left without active base queries is skipped: its fragments cannot be used until a base exists.
+     */
+    private void revalidateFragments(String context) {
+        if (queryBaseRepository.findByContextAndActiveTrueOrderByNameUnique(context).isEmpty()) {
+            log.warn("Context {} has no active base query, its filters and orders were not revalidated", context);
+            return;
+        }
+        for (QueryFilter filter : queryFilterRepository.findByContextAndActiveTrue(context)) {
+            CompiledFragment compiled = revalidate("Filter", filter.getNameUnique(),
+                    () -> queryFragmentValidator.validateFilter(context, filter.getQueryFragment()));
+            filter.setCompiledFragment(compiled.getText());
+            filter.setParameterTypes(compiled.parameterTypesText());
+        }
+        for (QueryOrder order : queryOrderRepository.findByContextAndActiveTrue(context)) {
+            CompiledFragment compiled = revalidate("Order", order.getNameUnique(),
+                    () -> queryFragmentValidator.validateOrder(context, order.getQueryFragment()));
+            order.setCompiledFragment(compiled.getText());
+        }
+    }
+
+    private CompiledFragment revalidate(String kind, String nameUnique, Supplier<CompiledFragment> validation) {
+        try {
+            return validation.get();
+        } catch (InvalidQueryFragmentException e) {
+            throw new InvalidQueryFragmentException(kind + " " + nameUnique
+                    + " does not compile with the updated base query: " + e.getMessage(), e);
+        }
     }
 
     @Transactional
     public void deleteQueryBase(UUID id) {
         queryBaseRepository.deleteById(id);
+        publishConfigChanged(null);
     }
 
     // QueryFilter operations
@@ -89,33 +169,44 @@ public class QueryConfigService {
 
     @Transactional
     public QueryFilterDTO createQueryFilter(QueryFilterDTO dto) {
+        CompiledFragment compiled = queryFragmentValidator.validateFilter(dto.getContext(), dto.getQueryFragment());
         QueryFilter entity = QueryFilter.builder()
                 .nameUnique(dto.getNameUnique())
                 .context(dto.getContext())
                 .queryFragment(dto.getQueryFragment())
+                .compiledFragment(compiled.getText())
+                .parameterTypes(compiled.parameterTypesText())
                 .description(dto.getDescription())
                 .active(dto.getActive() != null ? dto.getActive() : true)
                 .build();
-        return toQueryFilterDTO(queryFilterRepository.save(entity));
+        QueryFilter saved = queryFilterRepository.save(entity);
+        publishConfigChanged(saved.getContext());
+        return toQueryFilterDTO(saved);
     }
 
     @Transactional
     public QueryFilterDTO updateQueryFilter(UUID id, QueryFilterDTO dto) {
         QueryFilter entity = queryFilterRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("QueryFilter not found"));
+        CompiledFragment compiled = queryFragmentValidator.validateFilter(dto.getContext(), dto.getQueryFragment());
 
         entity.setNameUnique(dto.getNameUnique());
         entity.setContext(dto.getContext());
         entity.setQueryFragment(dto.getQueryFragment());
+        entity.setCompiledFragment(compiled.getText());
+        entity.setParameterTypes(compiled.parameterTypesText());
         entity.setDescription(dto.getDescription());
         entity.setActive(dto.getActive());
 
-        return toQueryFilterDTO(queryFilterRepository.save(entity));
+        QueryFilter saved = queryFilterRepository.save(entity);
+        publishConfigChanged(saved.getContext());
+        return toQueryFilterDTO(saved);
     }
 
     @Transactional
     public void deleteQueryFilter(UUID id) {
         queryFilterRepository.deleteById(id);
+        publishConfigChanged(null);
     }
 
     // QueryOrder operations
@@ -133,149 +224,244 @@ public class QueryConfigService {
 
     @Transactional
     public QueryOrderDTO createQueryOrder(QueryOrderDTO dto) {
+        CompiledFragment compiled = queryFragmentValidator.validateOrder(dto.getContext(), dto.getQueryFragment());
         QueryOrder entity = QueryOrder.builder()
                 .nameUnique(dto.getNameUnique())
                 .context(dto.getContext())
                 .queryFragment(dto.getQueryFragment())
+                .compiledFragment(compiled.getText())
                 .description(dto.getDescription())
                 .active(dto.getActive() != null ? dto.getActive() : true)
                 .build();
-        return toQueryOrderDTO(queryOrderRepository.save(entity));
+        QueryOrder saved = queryOrderRepository.save(entity);
+        publishConfigChanged(saved.getContext());
+        return toQueryOrderDTO(saved);
     }
 
     @Transactional
     public QueryOrderDTO updateQueryOrder(UUID id, QueryOrderDTO dto) {
         QueryOrder entity = queryOrderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("QueryOrder not found"));
+        CompiledFragment compiled = queryFragmentValidator.validateOrder(dto.getContext(), dto.getQueryFragment());
 
         entity.setNameUnique(dto.getNameUnique());
         entity.setContext(dto.getContext());
         entity.setQueryFragment(dto.getQueryFragment());
+        entity.setCompiledFragment(compiled.getText());
         entity.setDescription(dto.getDescription());
         entity.setActive(dto.getActive());
 
-        return toQueryOrderDTO(queryOrderRepository.save(entity));
+        QueryOrder saved = queryOrderRepository.save(entity);
+        publishConfigChanged(saved.getContext());
+        return toQueryOrderDTO(saved);
     }
 
     @Transactional
     public void deleteQueryOrder(UUID id) {
         queryOrderRepository.deleteById(id);
+        publishConfigChanged(null);
     }
 
     // Query Preview
-    @Transactional(readOnly = true)
+    // Runs on the isolated preview lane (QueryPreviewExecutor), in its own read-only transaction
     public QueryPreviewResponse previewQuery(QueryPreviewRequest request) {
+        String previewId = request.getPreviewId() != null && !request.getPreviewId().isBlank()
+                ? request.getPreviewId()
+                : UUID.randomUUID().toString();
+        String finalQuery = request.getBaseQuery();
         try {
-            StringBuilder finalQuery = new StringBuilder(request.getBaseQuery());
+            // Build the query from its structure instead of concatenating text, so the count form can be derived
+            JpqlQueryModel model = previewModel(request);
+            finalQuery = model.toJpql();
+            log.info("Preview query {}: {}", previewId, finalQuery);
 
-            // Add filters - just append them since they should contain "AND" or "WHERE" if needed
-            if (request.getFilters() != null && !request.getFilters().isEmpty()) {
-                for (String filter : request.getFilters()) {
-                    finalQuery.append(" ").append(filter);
-                }
-            }
+            int maxRows = previewRows(request);
+            String jpql = finalQuery;
+            return queryPreviewExecutor.execute(previewId, () -> runPreview(previewId, model, jpql, request, maxRows));
 
-            // Add orders - just append them since they should contain "ORDER BY" if needed
-            if (request.getOrders() != null && !request.getOrders().isEmpty()) {
-                for (String order : request.getOrders()) {
-                    finalQuery.append(" ").append(order);
-                }
+        } catch (Exception e) {
+            log.error("Error previewing query {}", previewId, e);
+            return QueryPreviewResponse.builder()
+                    .previewId(previewId)
+                    .finalQuery(finalQuery)
+                    .valid(false)
+                    .errorMessage(e.getMessage())
+                    .columns(Collections.emptyList())
+                    .rows(Collections.emptyList())
+                    .totalResults(0)
+                    .countMode(CountMode.NONE)
+                    .build();
+        }
+    }
+
+    public boolean cancelPreview(String previewId) {
+        return queryPreviewExecutor.cancel(previewId);
+    }
+
+    private QueryPreviewResponse runPreview(String previewId, JpqlQueryModel model, String jpql,
+                                            QueryPreviewRequest request, int maxRows) {
+        // Use createQuery instead of createNativeQuery to support JPQL (camelCase properties)
+        Query query = entityManager.createQuery(jpql);
+        query.setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, previewTimeout.toMillis());
+        bindPreviewParameters(query, request.getParameters());
+        query.setMaxResults(maxRows);
+
+        @SuppressWarnings("unchecked")
+        List<Object> results = query.getResultList();
+
+        // Columnar preview: column names once, one value array per row
+        List<String> columns = List.of();
+        List<Object[]> rows = new ArrayList<>(results.size());
+        if (!results.isEmpty() && results.get(0) instanceof Object[] first) {
+            // Multiple columns selected (e.g., SELECT c.name, c.cnpj FROM ...)
+            columns = first.length == model.getSelections().size() ? model.getSelections() : numberedColumns(first.length);
+            for (Object result : results) {
+                rows.add((Object[]) result);
+            }
+        } else if (!results.isEmpty()) {
+            // Single entity or value selected (e.g., SELECT c FROM ...): fields resolved once per class
+            PreviewRowMapper mapper = PreviewRowMapper.forResult(firstNonNull(results));
+            columns = mapper.getColumns();
+            for (Object result : results) {
+                rows.add(mapper.map(result));
             }
+        }
 
-            String queryString = finalQuery.toString();
-            log.info("Preview query: {}", queryString);
+        QueryPreviewResponse.QueryPreviewResponseBuilder response = QueryPreviewResponse.builder()
+                .previewId(previewId)
+                .finalQuery(jpql)
+                .valid(true)
+                .columns(columns)
+                .rows(rows);
+        resolvePreviewTotal(model, request, results.size(), maxRows, response);
+
+        if (request.isExplain()) {
+            // Runs last: EXPLAIN ANALYZE executes the query again, and a failure aborts the (rolled back) transaction
+            response.explain(queryPlanExplainer.explain(model.toPlanJpql(), explain -> {
+                explain.setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, previewTimeout.toMillis());
+                bindPreviewParameters(explain, request.getParameters());
+                explain.setMaxResults(maxRows);
+            }));
+        }
+        return response.build();
+    }
 
-            // Try to execute with limit for preview
-            // Use createQuery instead of createNativeQuery to support JPQL (camelCase properties)
-            Query query = entityManager.createQuery(queryString);
+    /**
+     * Rows requested by the preview, limited to dynamic-query.preview.max-rows to bound the memory of a single preview
+     */
+    private int previewRows(QueryPreviewRequest request) {
+        if (request.getMaxRows() == null || request.getMaxRows() <= 0) {
+            return Math.min(previewDefaultRows, previewMaxRows);
+        }
+        return Math.min(request.getMaxRows(), previewMaxRows);
+    }
 
-            // Set parameters if provided
-            if (request.getParameters() != null) {
-                request.getParameters().forEach(query::setParameter);
+    /**
+     * Parses the base query and combines the filter and order fragments into the structured model.
+     * Order fragments after the first may start with ORDER BY or with a comma.
+     */
+    private JpqlQueryModel previewModel(QueryPreviewRequest request) {
+        JpqlQueryModel model = JpqlQueryModel.parse(request.getBaseQuery());
+        if (request.getFilters() != null) {
+            for (String filter : request.getFilters()) {
+                model = model.withPredicate(JpqlQueryModel.predicateOf(filter));
             }
+        }
+        if (request.getOrders() != null && !request.getOrders().isEmpty()) {
+            List<String> orderItems = new ArrayList<>();
+            if (model.getOrderBy() != null) {
+                orderItems.add(model.getOrderBy());
+            }
+            for (String order : request.getOrders()) {
+                String trimmed = order.trim();
+                orderItems.add(trimmed.startsWith(",")
+                        ? JpqlQueryModel.canonical(trimmed.substring(1)).trim()
+                        : JpqlQueryModel.orderItemsOf(trimmed));
+            }
+            model = model.withOrderBy(String.join(", ", orderItems));
+        }
+        return model;
+    }
 
-            query.setMaxResults(10); // Limit preview to 10 results
-
-            @SuppressWarnings("unchecked")
-            List<Object> results = query.getResultList();
+    /**
+     * Resolves totalResults with a COUNT query derived from the model, never by loading the rows.
+     * ESTIMATED uses the planner estimate (PostgreSQL) and only counts exactly when the estimate is below the cap.
+     * A count that fails or exceeds the statement timeout leaves the preview valid, with countMode NONE.
+     */
+    private QueryPreviewResponse.QueryPreviewResponseBuilder resolvePreviewTotal(
+            JpqlQueryModel model, QueryPreviewRequest request, int fetched, int maxRows,
+            QueryPreviewResponse.QueryPreviewResponseBuilder response) {
+        CountMode countMode = request.getCountMode() != null ? request.getCountMode() : previewCountMode;
+        if (fetched < maxRows) {
+            // The preview already holds every row
+            return response.totalResults(fetched).countMode(CountMode.EXACT);
+        }
+        if (countMode == CountMode.NONE || model.isGrouped()) {
+            return response.totalResults(fetched).countMode(CountMode.NONE);
+        }
 
-            // Convert results to map
-            List<Map<String, Object>> previewResults = new ArrayList<>();
-            for (Object result : results) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                if (result instanceof Object[] cols) {
-                    // Multiple columns selected (e.g., SELECT c.name, c.cnpj FROM ...)
-                    for (int i = 0; i < cols.length; i++) {
-                        row.put("column_" + (i + 1), cols[i]);
-                    }
-                } else {
-                    // Single entity or value selected (e.g., SELECT c FROM ...)
-                    // Convert entity to map using reflection
-                    row = convertEntityToMap(result);
+        try {
+            if (countMode == CountMode.ESTIMATED) {
+                OptionalLong estimate = rowCountEstimator.estimate(model.toProbeJpql(),
+                        query -> bindPreviewParameters(query, request.getParameters()));
+                if (estimate.isPresent() && estimate.getAsLong() > countCap) {
+                    return response.totalResults(estimate.getAsLong()).countMode(CountMode.ESTIMATED);
                 }
-                previewResults.add(row);
             }
-
-            // Get total count (without limit)
-            Query countQuery = entityManager.createQuery(queryString);
-            if (request.getParameters() != null) {
-                request.getParameters().forEach(countQuery::setParameter);
+            if (countMode == CountMode.CAPPED) {
+                Query probe = entityManager.createQuery(model.toProbeJpql());
+                probe.setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, previewTimeout.toMillis());
+                bindPreviewParameters(probe, request.getParameters());
+                probe.setMaxResults(countCap + 1);
+                int capped = probe.getResultList().size();
+                return capped > countCap
+                        ? response.totalResults(countCap).countMode(CountMode.CAPPED)
+                        : response.totalResults(capped).countMode(CountMode.EXACT);
             }
-            int totalResults = countQuery.getResultList().size();
-
-            return QueryPreviewResponse.builder()
-                    .finalQuery(queryString)
-                    .valid(true)
-                    .previewResults(previewResults)
-                    .totalResults(totalResults)
-                    .build();
 
-        } catch (Exception e) {
-            log.error("Error previewing query", e);
-            return QueryPreviewResponse.builder()
-                    .finalQuery(request.getBaseQuery())
-                    .valid(false)
-                    .errorMessage(e.getMessage())
-                    .previewResults(Collections.emptyList())
-                    .totalResults(0)
-                    .build();
+            TypedQuery<Long> count = entityManager.createQuery(model.toCountJpql(), Long.class);
+            count.setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, previewTimeout.toMillis());
+            bindPreviewParameters(count, request.getParameters());
+            return response.totalResults(count.getSingleResult()).countMode(CountMode.EXACT);
+        } catch (QueryTimeoutException e) {
+            log.warn("Preview count exceeded {} ms, returning the preview without a total", previewTimeout.toMillis());
+            return response.totalResults(fetched).countMode(CountMode.NONE);
         }
     }
 
-    // Helper method to convert entity to map
-    private Map<String, Object> convertEntityToMap(Object entity) {
-        Map<String, Object> map = new LinkedHashMap<>();
-
-        if (entity == null) {
-            return map;
+    /**
+     * Binds only the parameters the query declares, so a count without the ORDER BY does not reject extra ones
+     */
+    private static void bindPreviewParameters(Query query, Map<String, Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return;
         }
-
-        // Handle primitive types and strings
-        if (entity instanceof String || entity instanceof Number || entity instanceof Boolean) {
-            map.put("value", entity);
-            return map;
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (parameter.getName() != null && parameters.containsKey(parameter.getName())) {
+                query.setParameter(parameter.getName(), parameters.get(parameter.getName()));
+            }
         }
+    }
 
-        // Use reflection to get all fields from the entity
-        try {
-            Class<?> clazz = entity.getClass();
-            java.lang.reflect.Field[] fields = clazz.getDeclaredFields();
-
-            for (java.lang.reflect.Field field : fields) {
-                field.setAccessible(true);
-                try {
-                    Object value = field.get(entity);
-                    map.put(field.getName(), value);
-                } catch (IllegalAccessException e) {
-                    log.warn("Could not access field: {}", field.getName());
-                }
+    private static Object firstNonNull(List<Object> results) {
+        for (Object result : results) {
+            if (result != null) {
+                return result;
             }
-        } catch (Exception e) {
-            log.error("Error converting entity to map", e);
-            map.put("error", "Could not convert entity: " + e.getMessage());
         }
+        return null;
+    }
+
+    private static List<String> numberedColumns(int count) {
+        List<String> columns = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            columns.add("column_" + i);
+        }
+        return columns;
+    }
 
-        return map;
+    private void publishConfigChanged(String context) {
+        eventPublisher.publishEvent(new QueryConfigChangedEvent(context));
     }
 
     // Mappers
@@ -285,6 +471,7 @@ public class QueryConfigService {
                 .nameUnique(entity.getNameUnique())
                 .context(entity.getContext())
                 .query(entity.getQuery())
+                .projection(entity.getProjection())
                 .description(entity.getDescription())
                 .active(entity.getActive())
                 .createdAt(entity.getCreatedAt())
@@ -298,6 +485,7 @@ public class QueryConfigService {
                 .nameUnique(entity.getNameUnique())
                 .context(entity.getContext())
                 .queryFragment(entity.getQueryFragment())
+                .parameterTypes(CompiledFragment.parseParameterTypes(entity.getParameterTypes()))
                 .description(entity.getDescription())
                 .active(entity.getActive())
                 .createdAt(entity.getCreatedAt())
@@ -0,0 +1,127 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.QueryBase;
+import com.example.poc.query.dynamic.repository.QueryBaseRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Valida queries base, filtros e ordenações no momento em que são salvos.
+ * Cada fragmento é combinado com as queries base ativas do seu contexto e compilado pelo Hibernate (sem executar),
+ * de modo que erros de sintaxe, entidades ou atributos inexistentes são recusados no cadastro e nunca chegam à busca.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryFragmentValidator {
+
+    private final QueryBaseRepository queryBaseRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @throws InvalidQueryFragmentException se a query não puder ser interpretada ou compilada
+     */
+    public void validateBase(String query) {
+        JpqlQueryModel model;
+        try {
+            model = JpqlQueryModel.parse(query);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryFragmentException("Invalid base query: " + e.getMessage(), e);
+        }
+        compile(model.toJpql(), Set.of(), "base query");
+    }
+
+    /**
+     * Extrai o predicado do filtro e o compila com cada query base do contexto
+     *
+     * @throws InvalidQueryFragmentException se o filtro não compilar com alguma query base do contexto
+     */
+    public CompiledFragment validateFilter(String context, String fragment) {
+        String predicate;
+        try {
+            predicate = JpqlQueryModel.predicateOf(fragment);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryFragmentException("Invalid filter: " + e.getMessage(), e);
+        }
+        return validateAgainstBases(context, predicate, model -> model.withPredicate(predicate), "filter");
+    }
+
+    /**
+     * Extrai os itens de ordenação e os compila com cada query base do contexto
+     *
+     * @throws InvalidQueryFragmentException se a ordenação não compilar com alguma query base do contexto
+     */
+    public CompiledFragment validateOrder(String context, String fragment) {
+        String orderItems;
+        try {
+            orderItems = JpqlQueryModel.orderItemsOf(fragment);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryFragmentException("Invalid order: " + e.getMessage(), e);
+        }
+        return validateAgainstBases(context, orderItems, model -> model.withOrderBy(orderItems), "order");
+    }
+
+    private CompiledFragment validateAgainstBases(String context, String compiled,
+                                                  Function<JpqlQueryModel, JpqlQueryModel> combine, String kind) {
+        List<QueryBase> bases = queryBaseRepository.findByContextAndActiveTrueOrderByNameUnique(context);
+        if (bases.isEmpty()) {
+            throw new InvalidQueryFragmentException("No active base query for context " + context
+                    + " to validate the " + kind + " against");
+        }
+
+        Set<String> parameterNames = DynamicQueryService.extractParameterNames(compiled);
+        Map<String, String> parameterTypes = new TreeMap<>();
+        for (QueryBase base : bases) {
+            JpqlQueryModel model;
+            try {
+                model = JpqlQueryModel.parse(base.getQuery());
+            } catch (IllegalArgumentException e) {
+                // Query base gravada antes da validação: não impede o cadastro do fragmento
+                log.warn("Skipping invalid base query {} while validating {}: {}", base.getNameUnique(), kind, e.getMessage());
+                continue;
+            }
+            compile(combine.apply(model).toJpql(), parameterNames, kind + " with base query " + base.getNameUnique())
+                    .forEach(parameterTypes::putIfAbsent);
+        }
+        return new CompiledFragment(compiled, Collections.unmodifiableMap(parameterTypes));
+    }
+
+    /**
+     * Compila a JPQL pelo Hibernate e retorna o tipo esperado de cada parâmetro informado
+     */
+    private Map<String, String> compile(String jpql, Set<String> parameterNames, String description) {
+        Query query;
+        try {
+            query = entityManager.createQuery(jpql);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryFragmentException("Invalid " + description + ": " + rootMessage(e), e);
+        }
+
+        Map<String, String> types = new TreeMap<>();
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (parameter.getName() != null && parameterNames.contains(parameter.getName())) {
+                Class<?> type = parameter.getParameterType();
+                types.put(parameter.getName(), type != null ? type.getSimpleName() : "Object");
+            }
+        }
+        return types;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : e.getMessage();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.QueryFilter;
+import com.example.poc.query.dynamic.entity.QueryOrder;
+import com.example.poc.query.dynamic.event.QueryConfigChangedEvent;
+import com.example.poc.query.dynamic.event.QueryMetadataReloadedEvent;
+import com.example.poc.query.dynamic.repository.QueryBaseRepository;
+import com.example.poc.query.dynamic.repository.QueryFilterRepository;
+import com.example.poc.query.dynamic.repository.QueryOrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantém em memória o snapshot dos metadados de queries.
+ * Carregado na inicialização e recarregado (troca atômica) a cada alteração feita pelo QueryConfigService.
+ * Na inicialização, antes da carga, grava a forma compilada dos filtros e ordenações que ainda não a têm
+ * (ex: os inseridos pelo Liquibase), validando-os como no cadastro.
+ */
+@Component
+@Slf4j
+public class QueryMetadataRegistry {
+
+    private final QueryBaseRepository queryBaseRepository;
+    private final QueryFilterRepository queryFilterRepository;
+    private final QueryOrderRepository queryOrderRepository;
+    private final QueryPlanCache queryPlanCache;
+    private final QueryFragmentValidator queryFragmentValidator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate writeTransactionTemplate;
+
+    private final AtomicReference<QueryMetadataSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    public QueryMetadataRegistry(QueryBaseRepository queryBaseRepository,
+                                 QueryFilterRepository queryFilterRepository,
+                                 QueryOrderRepository queryOrderRepository,
+                                 QueryPlanCache queryPlanCache,
+                                 QueryFragmentValidator queryFragmentValidator,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager) {
+        this.queryBaseRepository = queryBaseRepository;
+        this.queryFilterRepository = queryFilterRepository;
+        this.queryOrderRepository = queryOrderRepository;
+        this.queryPlanCache = queryPlanCache;
+        this.queryFragmentValidator = queryFragmentValidator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writeTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.writeTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Snapshot atual; carrega sob demanda caso ainda não tenha sido carregado
+     */
+    public QueryMetadataSnapshot current() {
+        QueryMetadataSnapshot current = snapshot.get();
+        return current != null ? current : reload();
+    }
+
+    /**
+     * Recarrega todos os metadados ativos e troca o snapshot atomicamente
+     */
+    public QueryMetadataSnapshot reload() {
+        // A versão é reservada antes da leitura para que um reload mais antigo nunca sobrescreva um mais novo
+        long version = versionSequence.incrementAndGet();
+        QueryMetadataSnapshot loaded = transactionTemplate.execute(status -> QueryMetadataSnapshot.of(
+                version,
+                queryBaseRepository.findByActiveTrue(),
+                queryFilterRepository.findByActiveTrue(),
+                queryOrderRepository.findByActiveTrue()));
+
+        QueryMetadataSnapshot result = snapshot.accumulateAndGet(loaded,
+                (previous, next) -> previous == null || next.getVersion() > previous.getVersion() ? next : previous);
+        queryPlanCache.invalidateAll();
+        // Só depois da troca do snapshot e da limpeza dos planos os caches dependentes podem se invalidar
+        eventPublisher.publishEvent(new QueryMetadataReloadedEvent(result.getVersion()));
+
+        log.info("Query metadata snapshot loaded: version={}, bases={}, filters={}, orders={}",
+                result.getVersion(), result.getBases().size(), result.getFilters().size(), result.getOrders().size());
+        return result;
+    }
+
+    /**
+     * Compila e grava os filtros e ordenações ativos sem forma compilada, cada um na sua transação.
+     * Fragmentos que não compilam ficam como estão e são registrados no log.
+     *
+     * @return quantidade de fragmentos atualizados
+     */
+    public int backfillCompiledFragments() {
+        int updated = 0;
+        for (QueryFilter filter : transactionTemplate.execute(status -> queryFilterRepository.findByActiveTrue())) {
+            if (filter.getCompiledFragment() == null && backfill("filter", filter.getNameUnique(), () -> {
+                QueryFilter managed = queryFilterRepository.findById(filter.getId()).orElseThrow();
+                CompiledFragment compiled = queryFragmentValidator.validateFilter(managed.getContext(), managed.getQueryFragment());
+                managed.setCompiledFragment(compiled.getText());
+                managed.setParameterTypes(compiled.parameterTypesText());
+            })) {
+                updated++;
+            }
+        }
+        for (QueryOrder order : transactionTemplate.execute(status -> queryOrderRepository.findByActiveTrue())) {
+            if (order.getCompiledFragment() == null && backfill("order", order.getNameUnique(), () -> {
+                QueryOrder managed = queryOrderRepository.findById(order.getId()).orElseThrow();
+                managed.setCompiledFragment(queryFragmentValidator.validateOrder(managed.getContext(),
+                        managed.getQueryFragment()).getText());
+            })) {
+                updated++;
+            }
+        }
+        if (updated > 0) {
+            log.info("Compiled form backfilled for {} query fragments", updated);
+        }
+        return updated;
+    }
+
+    private boolean backfill(String kind, String nameUnique, Runnable update) {
+        try {
+            writeTransactionTemplate.executeWithoutResult(status -> update.run());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not compile {} {}, it stays without compiled form: {}", kind, nameUnique, e.getMessage());
+            return false;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        backfillCompiledFragments();
+        reload();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQueryConfigChanged(QueryConfigChangedEvent event) {
+        reload();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.QueryBase;
+import com.example.poc.query.dynamic.entity.QueryFilter;
+import com.example.poc.query.dynamic.entity.QueryOrder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fotografia imutável de todos os metadados ativos (query_base, query_filter, query_order).
+ * Uma nova instância é criada a cada alteração de configuração e trocada atomicamente.
+ */
+@Value
+@Slf4j
+public class QueryMetadataSnapshot {
+
+    long version;
+    LocalDateTime loadedAt;
+    Map<String, Fragment> bases;
+
+    /**
+     * Queries base já interpretadas, uma vez por versão do snapshot; bases inválidas ficam de fora
+     */
+    Map<String, JpqlQueryModel> baseModels;
+
+    /**
+     * Colunas do modo projeção declaradas por query base
+     */
+    Map<String, List<String>> baseProjections;
+    Map<String, Fragment> filters;
+    Map<String, Fragment> orders;
+
+    /**
+     * Forma compilada de cada filtro (predicado) e ordenação (itens), gravada ao salvar o fragmento;
+     * fragmentos inválidos ficam de fora
+     */
+    Map<String, String> filterPredicates;
+    Map<String, String> orderItems;
+
+    Map<String, ContextMetadata> contexts;
+
+    public static QueryMetadataSnapshot of(long version,
+                                           List<QueryBase> bases,
+                                           List<QueryFilter> filters,
+                                           List<QueryOrder> orders) {
+        Map<String, Fragment> baseMap = indexByName(bases.stream()
+                .map(b -> new Fragment(b.getNameUnique(), b.getContext(), b.getQuery(), b.getDescription())));
+        Map<String, Fragment> filterMap = indexByName(filters.stream()
+                .map(f -> new Fragment(f.getNameUnique(), f.getContext(), f.getQueryFragment(), f.getDescription())));
+        Map<String, Fragment> orderMap = indexByName(orders.stream()
+                .map(o -> new Fragment(o.getNameUnique(), o.getContext(), o.getQueryFragment(), o.getDescription())));
+
+        Map<String, JpqlQueryModel> baseModels = new LinkedHashMap<>();
+        for (Fragment base : baseMap.values()) {
+            try {
+                baseModels.put(base.getNameUnique(), JpqlQueryModel.parse(base.getText()));
+            } catch (IllegalArgumentException e) {
+                // A query base continua listada; o erro aparece ao tentar executá-la
+                log.warn("Invalid base query {} could not be parsed: {}", base.getNameUnique(), e.getMessage());
+            }
+        }
+
+        Map<String, String> filterPredicates = new LinkedHashMap<>();
+        for (QueryFilter filter : filters) {
+            compiledForm("filter", filter.getNameUnique(), filter.getCompiledFragment(), filter.getQueryFragment(),
+                    JpqlQueryModel::predicateOf)
+                    .ifPresent(predicate -> filterPredicates.put(filter.getNameUnique(), predicate));
+        }
+        Map<String, String> orderItems = new LinkedHashMap<>();
+        for (QueryOrder order : orders) {
+            compiledForm("order", order.getNameUnique(), order.getCompiledFragment(), order.getQueryFragment(),
+                    JpqlQueryModel::orderItemsOf)
+                    .ifPresent(items -> orderItems.put(order.getNameUnique(), items));
+        }
+
+        Map<String, List<String>> baseProjections = new LinkedHashMap<>();
+        for (QueryBase base : bases) {
+            List<String> columns = parseColumns(base.getProjection());
+            if (!columns.isEmpty()) {
+                baseProjections.put(base.getNameUnique(), columns);
+            }
+        }
+
+        Set<String> contextNames = new TreeSet<>();
+        filterMap.values().forEach(f -> contextNames.add(f.getContext()));
+        orderMap.values().forEach(o -> contextNames.add(o.getContext()));
+
+        Map<String, ContextMetadata> contexts = new LinkedHashMap<>();
+        for (String context : contextNames) {
+            List<Fragment> contextFilters = byContext(filterMap, context);
+            List<Fragment> contextOrders = byContext(orderMap, context);
+            contexts.put(context, new ContextMetadata(context, contextFilters, contextOrders,
+                    computeETag(context, contextFilters, contextOrders)));
+        }
+
+        return new QueryMetadataSnapshot(version, LocalDateTime.now(), baseMap,
+                Collections.unmodifiableMap(baseModels), Collections.unmodifiableMap(baseProjections), filterMap, orderMap,
+                Collections.unmodifiableMap(filterPredicates), Collections.unmodifiableMap(orderItems),
+                Collections.unmodifiableMap(contexts));
+    }
+
+    public static QueryMetadataSnapshot empty() {
+        return new QueryMetadataSnapshot(0, LocalDateTime.now(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(),
+                Map.of(), Map.of());
+    }
+
+    public Optional<Fragment> findBase(String nameUnique) {
+        return Optional.ofNullable(bases.get(nameUnique));
+    }
+
+    public Optional<JpqlQueryModel> findBaseModel(String nameUnique) {
+        return Optional.ofNullable(baseModels.get(nameUnique));
+    }
+
+    /**
+     * Colunas do modo projeção da query base; vazio quando a base lê a entidade inteira
+     */
+    public Optional<List<String>> findBaseProjection(String nameUnique) {
+        return Optional.ofNullable(baseProjections.get(nameUnique));
+    }
+
+    public Optional<Fragment> findFilter(String nameUnique) {
+        return Optional.ofNullable(filters.get(nameUnique));
+    }
+
+    public Optional<Fragment> findOrder(String nameUnique) {
+        return Optional.ofNullable(orders.get(nameUnique));
+    }
+
+    public Optional<String> findFilterPredicate(String nameUnique) {
+        return Optional.ofNullable(filterPredicates.get(nameUnique));
+    }
+
+    public Optional<String> findOrderItems(String nameUnique) {
+        return Optional.ofNullable(orderItems.get(nameUnique));
+    }
+
+    /**
+     * Metadados de um contexto; contextos sem filtros nem ordenações retornam listas vazias
+     */
+    public ContextMetadata getContext(String context) {
+        ContextMetadata metadata = contexts.get(context);
+        return metadata != null ? metadata : new ContextMetadata(context, List.of(), List.of(),
+                computeETag(context, List.of(), List.of()));
+    }
+
+    /**
+     * Usa a forma compilada gravada ao salvar; fragmentos gravados antes da validação são interpretados aqui,
+     * uma vez por versão do snapshot
+     */
+    private static Optional<String> compiledForm(String kind, String nameUnique, String compiled, String text,
+                                                 UnaryOperator<String> compiler) {
+        if (compiled != null) {
+            return Optional.of(compiled);
+        }
+        try {
+            return Optional.of(compiler.apply(text));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid {} {} left out of the query metadata snapshot: {}", kind, nameUnique, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static List<String> parseColumns(String projection) {
+        if (projection == null || projection.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(projection.split(","))
+                .map(String::trim)
+                .filter(column -> !column.isEmpty())
+                .toList();
+    }
+
+    private static Map<String, Fragment> indexByName(Stream<Fragment> fragments) {
+        Map<String, Fragment> map = new LinkedHashMap<>();
+        fragments.forEach(f -> map.put(f.getNameUnique(), f));
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static List<Fragment> byContext(Map<String, Fragment> fragments, String context) {
+        return fragments.values().stream()
+                .filter(f -> context.equals(f.getContext()))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * ETag derivado do conteúdo do contexto: só muda quando filtros ou ordenações do contexto mudam
+     */
+    private static String computeETag(String context, List<Fragment> filters, List<Fragment> orders) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(context.getBytes(StandardCharsets.UTF_8));
+            for (List<Fragment> group : List.of(filters, orders)) {
+                digest.update((byte) '|');
+                for (Fragment fragment : group) {
+                    digest.update(fragment.getNameUnique().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(String.valueOf(fragment.getDescription()).getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                }
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Value
+    public static class Fragment {
+        String nameUnique;
+        String context;
+        String text;
+        String description;
+    }
+
+    @Value
+    public static class ContextMetadata {
+        String context;
+        List<Fragment> filters;
+        List<Fragment> orders;
+        String eTag;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.poc.query.dynamic.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do pipeline de busca dinâmica, expostas pelo Actuator (/actuator/prometheus).
+ * As métricas de query são marcadas com a query base, o conjunto de filtros e a ordenação, para que combinações
+ * lentas possam ser identificadas. Os valores das tags vêm dos nomes cadastrados nos metadados, então a cardinalidade
+ * fica limitada às combinações realmente usadas.
+ */
+@Component
+public class QueryMetrics {
+
+    static final String NONE = "none";
+
+    private final MeterRegistry registry;
+
+    public QueryMetrics(MeterRegistry registry, QueryPlanCache queryPlanCache) {
+        this.registry = registry;
+
+        FunctionCounter.builder("dynamic.query.plan.cache", queryPlanCache, QueryPlanCache::getHits)
+                .description("Buscas que reaproveitaram um plano compilado")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("dynamic.query.plan.cache", queryPlanCache, QueryPlanCache::getMisses)
+                .description("Buscas que precisaram compilar o plano")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    /**
+     * Tags de uma combinação (query base, filtros, ordenação); calculadas uma vez por plano compilado
+     */
+    public static Tags planTags(String baseQueryName, List<String> filters, String order) {
+        return Tags.of(
+                "base", baseQueryName,
+                "filters", filters.isEmpty() ? NONE : String.join(",", filters),
+                "order", order != null ? order : NONE);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Busca dos metadados e montagem da JPQL de um plano que não estava em cache
+     */
+    public void stopPlanCompilation(Timer.Sample sample, Tags planTags) {
+        sample.stop(timer("dynamic.query.plan.compile", "Compilação de planos de query dinâmica", planTags));
+    }
+
+    /**
+     * Execução da query de dados
+     *
+     * @param pagination offset, keyset ou stream
+     * @return Duração em nanossegundos
+     */
+    public long stopExecution(Timer.Sample sample, Tags planTags, String pagination, long rows) {
+        Tags tags = planTags.and("pagination", pagination);
+        long duration = sample.stop(timer("dynamic.query.execution", "Execução da query de dados", tags));
+        DistributionSummary.builder("dynamic.query.rows")
+                .description("Linhas retornadas pela query de dados")
+                .tags(tags)
+                .register(registry)
+                .record(rows);
+        return duration;
+    }
+
+    /**
+     * Obtenção do total conforme o modo de contagem solicitado
+     *
+     * @return Duração em nanossegundos
+     */
+    public long stopCount(Timer.Sample sample, Tags planTags, String countMode) {
+        return sample.stop(timer("dynamic.query.count", "Obtenção do total da busca", planTags.and("mode", countMode)));
+    }
+
+    /**
+     * Conversão das linhas em DTOs com os indicadores (avaliados em Java ou lidos das colunas do banco)
+     */
+    public void stopIndicators(Timer.Sample sample, Tags planTags, String evaluationMode) {
+        sample.stop(timer("dynamic.query.indicators", "Montagem dos indicadores da página",
+                planTags.and("evaluation", evaluationMode)));
+    }
+
+    /**
+     * Tempo gasto por uma regra de indicador sobre um lote de entidades
+     */
+    public void recordRuleEvaluation(String context, String ruleKey, long nanos) {
+        timer("indicator.rule.evaluation", "Avaliação de regras de indicadores em Java",
+                Tags.of("context", context, "rule", ruleKey))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param reason compile (regra inválida para a entidade) ou evaluation (exceção durante a avaliação)
+     */
+    public void incrementRuleErrors(String context, String ruleKey, String reason) {
+        registry.counter("indicator.rule.errors", "context", context, "rule", ruleKey, "reason", reason).increment();
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+}
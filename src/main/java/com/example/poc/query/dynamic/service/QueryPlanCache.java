@@ -0,0 +1,85 @@
+package com.example.poc.query.dynamic.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache de planos compilados por (query base, filtros, ordenação).
+ * Evita as consultas de metadados e a montagem da JPQL a cada busca.
+ * É invalidado por completo pelo QueryMetadataRegistry sempre que um novo snapshot de metadados é carregado.
+ * A chave deve chegar normalizada (filtros sem repetição e em ordem estável), para que combinações equivalentes
+ * compartilhem o mesmo plano e a mesma JPQL.
+ * Cada plano guarda a geração do cache em que foi compilado; um plano de geração anterior à última invalidação
+ * nunca é servido, mesmo que tenha sido gravado depois dela. O tamanho é limitado por dynamic-query.plan-cache.max-size.
+ */
+@Component
+@Slf4j
+public class QueryPlanCache {
+
+    private final Cache<PlanKey, CachedPlan> plans;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public QueryPlanCache(@org.springframework.beans.factory.annotation.Value("${dynamic-query.plan-cache.max-size:1000}")
+                          long maxSize) {
+        this.plans = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    public CompiledQueryPlan getOrCompile(PlanKey key, Supplier<CompiledQueryPlan> compiler) {
+        // A geração é lida antes do snapshot usado na compilação: um plano gravado com ela nunca é mais novo que o snapshot
+        long currentGeneration = generation.get();
+        CachedPlan cached = plans.getIfPresent(key);
+        if (cached != null && cached.getGeneration() == currentGeneration) {
+            hits.incrementAndGet();
+            return cached.getPlan();
+        }
+        misses.incrementAndGet();
+
+        CompiledQueryPlan plan = compiler.get();
+        // Entre compilações concorrentes da mesma chave prevalece a da geração mais nova
+        CachedPlan stored = plans.asMap().merge(key, new CachedPlan(currentGeneration, plan),
+                (existing, compiled) -> existing.getGeneration() >= compiled.getGeneration() ? existing : compiled);
+        return stored.getGeneration() == currentGeneration ? stored.getPlan() : plan;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        plans.invalidateAll();
+        log.debug("Query plan cache invalidated");
+    }
+
+    public int size() {
+        // Aplica as remoções pendentes para que o tamanho respeite o limite configurado
+        plans.cleanUp();
+        return (int) plans.estimatedSize();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Value
+    private static class CachedPlan {
+        long generation;
+        CompiledQueryPlan plan;
+    }
+
+    @Value
+    public static class PlanKey {
+        String baseQueryName;
+        List<String> filters;
+        String order;
+    }
+}
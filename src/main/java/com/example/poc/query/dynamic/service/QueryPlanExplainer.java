@@ -0,0 +1,129 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.QueryExplainDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Executa EXPLAIN (ANALYZE, BUFFERS) de uma JPQL no PostgreSQL e resume o plano: custos estimado e real,
+ * índices usados e leituras sequenciais com filtro, para avaliar um filtro antes de ativá-lo.
+ * A JPQL é traduzida pelo Hibernate da mesma forma que na estimativa de linhas (RowCountEstimator).
+ * O ANALYZE executa a query de fato; deve rodar em uma transação que é desfeita e com timeout.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryPlanExplainer {
+
+    private static final String EXPLAIN_PREFIX = "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) ";
+
+    private final RowCountEstimator rowCountEstimator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${dynamic-query.slow-query.threshold:500ms}")
+    private Duration slowThreshold;
+
+    /**
+     * @param jpql   Query que seleciona um único valor textual por linha (ver JpqlQueryModel.toPlanJpql)
+     * @param binder Seta os parâmetros, o limite de linhas e o timeout da query
+     */
+    public QueryExplainDTO explain(String jpql, Consumer<Query<String>> binder) {
+        if (!rowCountEstimator.isSupported()) {
+            return QueryExplainDTO.builder()
+                    .available(false)
+                    .message("EXPLAIN ANALYZE is only available on PostgreSQL")
+                    .build();
+        }
+
+        try {
+            return summarize(rowCountEstimator.explain(EXPLAIN_PREFIX, jpql, binder));
+        } catch (Exception e) {
+            log.warn("Could not explain query: {}", e.getMessage());
+            return QueryExplainDTO.builder()
+                    .available(false)
+                    .message("Could not explain query: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    QueryExplainDTO summarize(String planJson) throws Exception {
+        JsonNode root = objectMapper.readTree(planJson).path(0);
+        JsonNode plan = root.path("Plan");
+
+        Set<String> indexes = new LinkedHashSet<>();
+        Set<String> sequentialScans = new LinkedHashSet<>();
+        List<String> warnings = new ArrayList<>();
+        visit(plan, indexes, sequentialScans, warnings);
+
+        Double executionTime = doubleOf(root.path("Execution Time"));
+        boolean slow = executionTime != null && executionTime >= slowThreshold.toNanos() / 1_000_000.0;
+        if (slow) {
+            warnings.add(String.format("Execution took %.1f ms, above the slow query threshold of %d ms",
+                    executionTime, slowThreshold.toMillis()));
+        }
+
+        return QueryExplainDTO.builder()
+                .available(true)
+                .estimatedCost(doubleOf(plan.path("Total Cost")))
+                .estimatedRows(longOf(plan.path("Plan Rows")))
+                .actualTimeMs(doubleOf(plan.path("Actual Total Time")))
+                .actualRows(longOf(plan.path("Actual Rows")))
+                .planningTimeMs(doubleOf(root.path("Planning Time")))
+                .executionTimeMs(executionTime)
+                .sharedHitBlocks(longOf(plan.path("Shared Hit Blocks")))
+                .sharedReadBlocks(longOf(plan.path("Shared Read Blocks")))
+                .indexesUsed(List.copyOf(indexes))
+                .sequentialScans(List.copyOf(sequentialScans))
+                .warnings(warnings)
+                .slow(slow)
+                .plan(planJson)
+                .build();
+    }
+
+    /**
+     * Percorre os nós do plano; um Seq Scan com filtro indica uma condição que não encontrou índice
+     */
+    private void visit(JsonNode node, Set<String> indexes, Set<String> sequentialScans, List<String> warnings) {
+        String nodeType = node.path("Node Type").asText();
+        if (node.hasNonNull("Index Name")) {
+            indexes.add(node.path("Index Name").asText());
+        }
+        if (nodeType.equals("Seq Scan")) {
+            String relation = node.path("Relation Name").asText();
+            sequentialScans.add(relation);
+            if (node.hasNonNull("Filter")) {
+                warnings.add(String.format("Sequential scan on %s filtering %s (%d rows removed by filter)",
+                        relation, node.path("Filter").asText(), node.path("Rows Removed by Filter").asLong()));
+            }
+        }
+        if (nodeType.equals("Sort") && "Disk".equals(node.path("Sort Space Type").asText())) {
+            List<String> keys = new ArrayList<>();
+            node.path("Sort Key").forEach(key -> keys.add(key.asText()));
+            warnings.add(String.format("Sort on %s spilled to disk (%d kB)",
+                    String.join(", ", keys), node.path("Sort Space Used").asLong()));
+        }
+        for (JsonNode child : node.path("Plans")) {
+            visit(child, indexes, sequentialScans, warnings);
+        }
+    }
+
+    private static Double doubleOf(JsonNode node) {
+        return node.isNumber() ? node.asDouble() : null;
+    }
+
+    private static Long longOf(JsonNode node) {
+        return node.isNumber() ? node.asLong() : null;
+    }
+}
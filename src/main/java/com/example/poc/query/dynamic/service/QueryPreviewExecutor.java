@@ -0,0 +1,169 @@
+package com.example.poc.query.dynamic.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Raia isolada para o preview de queries, que executa JPQL arbitrária informada por administradores.
+ * Poucas threads dedicadas (e, portanto, no máximo essa quantidade de conexões do pool) sem fila: com todas ocupadas
+ * o preview é recusado na hora, em vez de disputar conexões com as buscas de clientes.
+ * Cada preview roda em uma transação somente leitura que é sempre desfeita e pode ser cancelado pelo seu id,
+ * o que interrompe o comando em execução no banco.
+ */
+@Component
+@Slf4j
+public class QueryPreviewExecutor {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor executor;
+    private final Duration maxDuration;
+    private final Map<String, RunningPreview> running = new ConcurrentHashMap<>();
+
+    public QueryPreviewExecutor(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${dynamic-query.preview.max-concurrency:2}") int maxConcurrency,
+                                @Value("${dynamic-query.preview.max-duration:15s}") Duration maxDuration) {
+        this.entityManager = entityManager;
+        this.maxDuration = maxDuration;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("query-preview-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "queryPreview", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Executa o preview na raia isolada e aguarda o resultado por até dynamic-query.preview.max-duration
+     *
+     * @throws RuntimeException se a raia está cheia, o id já está em uso, o preview foi cancelado ou excedeu o tempo
+     */
+    public <T> T execute(String previewId, Supplier<T> task) {
+        RunningPreview preview = new RunningPreview();
+        if (running.putIfAbsent(previewId, preview) != null) {
+            throw new RuntimeException("Preview already running: " + previewId);
+        }
+        try {
+            Future<T> future;
+            try {
+                future = executor.submit(() -> readOnlyTransaction.execute(status -> {
+                    // O preview nunca grava: desfazer evita também o commit de uma transação marcada para rollback
+                    status.setRollbackOnly();
+                    preview.attach(entityManager.unwrap(Session.class));
+                    try {
+                        return task.get();
+                    } finally {
+                        preview.detach();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                throw new RuntimeException("Too many previews running, try again later");
+            }
+            preview.setFuture(future);
+
+            T result = future.get(maxDuration.toMillis(), TimeUnit.MILLISECONDS);
+            if (preview.isCancelled()) {
+                throw new RuntimeException("Preview cancelled: " + previewId);
+            }
+            return result;
+        } catch (TimeoutException e) {
+            preview.cancel();
+            throw new RuntimeException("Preview exceeded " + maxDuration.toMillis() + " ms");
+        } catch (CancellationException e) {
+            throw new RuntimeException("Preview cancelled: " + previewId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            preview.cancel();
+            throw new RuntimeException("Preview interrupted: " + previewId);
+        } catch (ExecutionException e) {
+            if (preview.isCancelled()) {
+                throw new RuntimeException("Preview cancelled: " + previewId);
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } finally {
+            running.remove(previewId, preview);
+        }
+    }
+
+    /**
+     * Cancela um preview em andamento, interrompendo o comando que está no banco
+     *
+     * @return false se não há preview em andamento com esse id
+     */
+    public boolean cancel(String previewId) {
+        RunningPreview preview = running.get(previewId);
+        if (preview == null) {
+            return false;
+        }
+        log.info("Cancelling preview {}", previewId);
+        preview.cancel();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sessão e tarefa de um preview em andamento. O cancelamento pode chegar antes de a tarefa começar,
+     * durante a execução ou depois de terminada.
+     */
+    private static class RunningPreview {
+
+        private Session session;
+        private Future<?> future;
+        private boolean cancelled;
+
+        synchronized void attach(Session session) {
+            if (cancelled) {
+                throw new CancellationException("Preview cancelled before start");
+            }
+            this.session = session;
+        }
+
+        synchronized void detach() {
+            this.session = null;
+        }
+
+        synchronized void setFuture(Future<?> future) {
+            this.future = future;
+            if (cancelled) {
+                future.cancel(false);
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (session != null) {
+                // Único método da sessão que pode ser chamado de outra thread: cancela o Statement em execução
+                session.cancelQuery();
+            }
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
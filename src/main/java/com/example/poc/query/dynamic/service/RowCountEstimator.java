@@ -0,0 +1,83 @@
+package com.example.poc.query.dynamic.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+
+/**
+ * Estima o número de linhas de uma JPQL usando o planejador do PostgreSQL, sem executar a query.
+ * A JPQL é traduzida normalmente pelo Hibernate e o SQL gerado é prefixado com EXPLAIN na mesma conexão da transação.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RowCountEstimator {
+
+    private static final String EXPLAIN_PREFIX = "EXPLAIN (FORMAT JSON) ";
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    private volatile Boolean supported;
+
+    public boolean isSupported() {
+        Boolean result = supported;
+        if (result == null) {
+            result = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            supported = result;
+        }
+        return result;
+    }
+
+    /**
+     * Retorna a estimativa de linhas da query, ou vazio quando o banco não suporta ou a estimativa falha
+     *
+     * @param jpql   Query que seleciona um único valor textual por linha (o resultado lido é o plano em JSON)
+     * @param binder Seta os parâmetros da query
+     */
+    public OptionalLong estimate(String jpql, Consumer<Query<String>> binder) {
+        if (!isSupported()) {
+            return OptionalLong.empty();
+        }
+
+        try {
+            JsonNode rows = objectMapper.readTree(explain(EXPLAIN_PREFIX, jpql, binder)).path(0).path("Plan").path("Plan Rows");
+            return rows.isNumber() ? OptionalLong.of(rows.asLong()) : OptionalLong.empty();
+        } catch (Exception e) {
+            log.warn("Could not estimate row count: {}", e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Executa o EXPLAIN informado sobre o SQL que o Hibernate gera para a JPQL e retorna o plano em JSON
+     *
+     * @param explainPrefix Comando EXPLAIN com as opções desejadas; deve incluir FORMAT JSON
+     */
+    String explain(String explainPrefix, String jpql, Consumer<Query<String>> binder) {
+        Session session = entityManager.unwrap(Session.class);
+        SessionFactory sessionFactory = session.getSessionFactory();
+        return session.doReturningWork(connection -> {
+            try (Session explainSession = sessionFactory.withOptions()
+                    .connection(connection)
+                    .statementInspector(sql -> explainPrefix + sql)
+                    .openSession()) {
+                Query<String> query = explainSession.createQuery(jpql, String.class);
+                binder.accept(query);
+                return query.getSingleResult();
+            }
+        });
+    }
+}
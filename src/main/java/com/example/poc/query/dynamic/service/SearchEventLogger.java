@@ -0,0 +1,52 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.DynamicQueryRequestDTO;
+import com.example.poc.query.dynamic.dto.PaginationMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uma linha estruturada (chave=valor) por busca, no logger "search.events", substituindo os logs por parâmetro.
+ * Apenas 1 a cada N buscas é registrada (dynamic-query.logging.search-sample-rate); com o logger desligado
+ * o custo é uma verificação de nível.
+ */
+@Component
+public class SearchEventLogger {
+
+    private static final Logger EVENTS = LoggerFactory.getLogger("search.events");
+
+    private final int sampleRate;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SearchEventLogger(@Value("${dynamic-query.logging.search-sample-rate:1}") int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    public void log(CompiledQueryPlan plan, DynamicQueryRequestDTO request, DynamicQueryPage page,
+                    String indicatorEvaluation, long durationNanos) {
+        if (!EVENTS.isInfoEnabled() || (sampleRate > 1 && sequence.getAndIncrement() % sampleRate != 0)) {
+            return;
+        }
+
+        QueryPlanCache.PlanKey key = plan.getKey();
+        EVENTS.info("search base={} filters={} order={} pagination={} countMode={} page={} size={} rows={} total={} "
+                        + "projected={} indicators={} durationMs={}",
+                key.getBaseQueryName(),
+                String.join(",", key.getFilters()),
+                key.getOrder(),
+                request.getPaginationMode() != null ? request.getPaginationMode() : PaginationMode.OFFSET,
+                page.getCountMode(),
+                request.getPage(),
+                request.getSize(),
+                page.getRows().size(),
+                page.getTotal(),
+                Boolean.TRUE.equals(request.getProjected()),
+                indicatorEvaluation,
+                Duration.ofNanos(durationNanos).toMillis());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.SlowQueryDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Registra as execuções da busca dinâmica que passam do limite configurado.
+ * Guarda o formato da query (JPQL normalizada, sem valores), os tipos dos parâmetros, a duração e as linhas retornadas,
+ * mantendo em memória apenas os N formatos mais lentos. Execuções abaixo do limite custam uma comparação.
+ */
+@Component
+@Slf4j
+public class SlowQueryRecorder {
+
+    private final long thresholdNanos;
+    private final int topN;
+
+    // Formatos mais lentos por (tipo, JPQL); acessado apenas quando o limite é ultrapassado
+    private final Map<String, SlowQuery> slowest = new HashMap<>();
+
+    public SlowQueryRecorder(@Value("${dynamic-query.slow-query.threshold:500ms}") Duration threshold,
+                             @Value("${dynamic-query.slow-query.top-n:20}") int topN) {
+        this.thresholdNanos = threshold.toNanos();
+        this.topN = topN;
+    }
+
+    /**
+     * @param kind       data, keyset, stream, count, capped-count (sondagem limitada) ou estimate (EXPLAIN da sondagem)
+     * @param parameters Parâmetros da requisição; apenas os tipos são guardados
+     */
+    public void record(String kind, CompiledQueryPlan plan, String jpql, Map<String, Object> parameters,
+                       long durationNanos, long rows) {
+        if (durationNanos < thresholdNanos) {
+            return;
+        }
+
+        long durationMs = Duration.ofNanos(durationNanos).toMillis();
+        Map<String, String> parameterTypes = parameterTypes(parameters);
+        QueryPlanCache.PlanKey key = plan.getKey();
+        log.warn("Slow dynamic query ({} ms, {} rows, {}): base={} filters={} order={} query={} parameterTypes={}",
+                durationMs, rows, kind, key.getBaseQueryName(), key.getFilters(), key.getOrder(), jpql, parameterTypes);
+
+        synchronized (slowest) {
+            SlowQuery entry = slowest.computeIfAbsent(kind + '|' + jpql, shape -> new SlowQuery(kind, key, jpql));
+            entry.add(durationNanos, rows, parameterTypes);
+
+            if (slowest.size() > topN) {
+                // Descarta o formato cuja pior execução é a mais rápida
+                slowest.values().stream()
+                        .min(Comparator.comparingLong(SlowQuery::getMaxNanos))
+                        .ifPresent(fastest -> slowest.remove(fastest.getKind() + '|' + fastest.getJpql()));
+            }
+        }
+    }
+
+    /**
+     * Formatos registrados, do mais lento para o mais rápido
+     */
+    public List<SlowQueryDTO> getSlowest() {
+        synchronized (slowest) {
+            return slowest.values().stream()
+                    .sorted(Comparator.comparingLong(SlowQuery::getMaxNanos).reversed())
+                    .map(SlowQuery::toDTO)
+                    .toList();
+        }
+    }
+
+    public void clear() {
+        synchronized (slowest) {
+            slowest.clear();
+        }
+    }
+
+    private static Map<String, String> parameterTypes(Map<String, Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> types = new TreeMap<>();
+        parameters.forEach((name, value) -> types.put(name, value != null ? value.getClass().getSimpleName() : "null"));
+        return Collections.unmodifiableMap(types);
+    }
+
+    private static final class SlowQuery {
+        private final String kind;
+        private final QueryPlanCache.PlanKey key;
+        private final String jpql;
+        private long occurrences;
+        private long maxNanos;
+        private long maxRows;
+        private long lastNanos;
+        private Map<String, String> parameterTypes;
+        private LocalDateTime lastSeenAt;
+
+        SlowQuery(String kind, QueryPlanCache.PlanKey key, String jpql) {
+            this.kind = kind;
+            this.key = key;
+            this.jpql = jpql;
+        }
+
+        void add(long durationNanos, long rows, Map<String, String> parameterTypes) {
+            occurrences++;
+            lastNanos = durationNanos;
+            lastSeenAt = LocalDateTime.now();
+            this.parameterTypes = parameterTypes;
+            if (durationNanos >= maxNanos) {
+                maxNanos = durationNanos;
+                maxRows = rows;
+            }
+        }
+
+        String getKind() {
+            return kind;
+        }
+
+        String getJpql() {
+            return jpql;
+        }
+
+        long getMaxNanos() {
+            return maxNanos;
+        }
+
+        SlowQueryDTO toDTO() {
+            return SlowQueryDTO.builder()
+                    .kind(kind)
+                    .baseQueryName(key.getBaseQueryName())
+                    .filters(key.getFilters())
+                    .order(key.getOrder())
+                    .query(jpql)
+                    .parameterTypes(parameterTypes)
+                    .occurrences(occurrences)
+                    .maxDurationMs(Duration.ofNanos(maxNanos).toMillis())
+                    .lastDurationMs(Duration.ofNanos(lastNanos).toMillis())
+                    .rows(maxRows)
+                    .lastSeenAt(lastSeenAt)
+                    .build();
+        }
+    }
+}
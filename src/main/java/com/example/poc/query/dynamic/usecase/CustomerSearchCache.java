@@ -0,0 +1,133 @@
+package com.example.poc.query.dynamic.usecase;
+
+import com.example.poc.query.dynamic.dto.CountMode;
+import com.example.poc.query.dynamic.dto.DynamicQueryRequestDTO;
+import com.example.poc.query.dynamic.dto.PaginationMode;
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import com.example.poc.query.dynamic.event.EntityChangedEvent;
+import com.example.poc.query.dynamic.event.QueryMetadataReloadedEvent;
+import com.example.poc.query.dynamic.service.QueryPlanCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache opcional dos resultados da busca de customers (dynamic-query.result-cache.enabled).
+ * A chave é a requisição normalizada (plano, parâmetros, página, cursor e modos), então um acerto evita
+ * tanto a query de dados quanto a de contagem. É limitado por tamanho e TTL e invalidado por completo
+ * após o commit de qualquer escrita em Customer ou IndicatorRule, ou após o reload dos metadados de queries.
+ */
+@Component
+@Slf4j
+public class CustomerSearchCache {
+
+    private final Cache<SearchKey, SearchCustomerUseCase.SearchResult> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CustomerSearchCache(@Value("${dynamic-query.result-cache.enabled:false}") boolean enabled,
+                               @Value("${dynamic-query.result-cache.maximum-size:1000}") long maximumSize,
+                               @Value("${dynamic-query.result-cache.ttl:30s}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customerSearch");
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Versão atual do cache; deve ser lida antes de executar a busca e repassada ao put
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public SearchCustomerUseCase.SearchResult get(SearchKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Guarda o resultado apenas se nenhuma invalidação ocorreu desde o início da busca,
+     * para que uma leitura anterior a um commit não volte ao cache depois de invalidado
+     */
+    public void put(SearchKey key, SearchCustomerUseCase.SearchResult result, long startGeneration) {
+        if (generation.get() == startGeneration) {
+            cache.put(key, result);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (cache != null) {
+            cache.invalidateAll();
+            log.debug("Customer search cache invalidated");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (Customer.class.isAssignableFrom(event.getEntityType())
+                || IndicatorRule.class.isAssignableFrom(event.getEntityType())) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Invalida após o QueryMetadataRegistry recarregar os metadados, e não na alteração em si: assim nenhuma busca
+     * feita com o plano antigo entre o commit e o reload é guardada como se fosse da nova versão
+     */
+    @EventListener
+    public void onQueryMetadataReloaded(QueryMetadataReloadedEvent event) {
+        invalidateAll();
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    public static class SearchKey {
+        private final QueryPlanCache.PlanKey plan;
+        private final Map<String, Object> parameters;
+        private final Integer page;
+        private final Integer size;
+        private final PaginationMode paginationMode;
+        private final String cursor;
+        private final CountMode countMode;
+
+        /**
+         * @param plan Chave já normalizada do plano (filtros ordenados e sem repetição)
+         */
+        static SearchKey of(QueryPlanCache.PlanKey plan, DynamicQueryRequestDTO request) {
+            return new SearchKey(plan,
+                    request.getParameters() != null ? new TreeMap<>(request.getParameters()) : Map.of(),
+                    request.getPage(),
+                    request.getSize(),
+                    request.getPaginationMode() != null ? request.getPaginationMode() : PaginationMode.OFFSET,
+                    request.getCursor() != null && !request.getCursor().isBlank() ? request.getCursor() : null,
+                    request.getCountMode());
+        }
+    }
+}
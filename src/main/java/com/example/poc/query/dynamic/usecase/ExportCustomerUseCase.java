@@ -0,0 +1,164 @@
+package com.example.poc.query.dynamic.usecase;
+
+import com.example.poc.query.dynamic.dto.*;
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.service.CompiledQueryPlan;
+import com.example.poc.query.dynamic.service.DynamicQueryService;
+import com.example.poc.query.dynamic.service.IndicatorEvaluationMode;
+import com.example.poc.query.dynamic.service.IndicatorProjection;
+import com.example.poc.query.dynamic.service.IndicatorService;
+import com.example.poc.query.dynamic.service.ProjectionMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Exporta todos os customers que atendem aos filtros, escrevendo direto no stream de saída.
+ * As linhas são processadas uma a uma (ou em lotes, quando os indicadores são avaliados em Java),
+ * então a memória usada não cresce com a quantidade de registros exportados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportCustomerUseCase {
+
+    private static final String BASE_QUERY = "customer_base_query";
+    private static final String CONTEXT = "CUSTOMER";
+    private static final int INDICATOR_BATCH_SIZE = 500;
+    private static final List<String> CSV_COLUMNS = List.of(
+            "id", "name", "tradeName", "cnpj", "active", "blocked", "createdAt", "updatedAt");
+
+    private final DynamicQueryService dynamicQueryService;
+    private final IndicatorService indicatorService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${dynamic-query.indicators.evaluation-mode:SQL}")
+    private IndicatorEvaluationMode indicatorEvaluationMode;
+
+    /**
+     * @return Quantidade de customers exportados
+     */
+    public long execute(CustomerFilterDTO filter, ExportFormat format, OutputStream output) throws IOException {
+        DynamicQueryRequestDTO request = DynamicQueryRequestDTO.builder()
+                .baseQueryName(BASE_QUERY)
+                .filters(filter.getFilters() != null ? filter.getFilters() : List.of())
+                .order(filter.getOrder() != null && !filter.getOrder().isBlank() ? filter.getOrder() : null)
+                .parameters(filter.getParameters() != null ? filter.getParameters() : Map.of())
+                .build();
+
+        CompiledQueryPlan plan = dynamicQueryService.resolvePlan(request);
+        IndicatorProjection projection = indicatorEvaluationMode == IndicatorEvaluationMode.SQL && plan.selectsRootEntity()
+                ? indicatorService.compileProjection(CONTEXT, plan.getRootAlias(), plan.getRootEntityClass()).orElse(null)
+                : null;
+        request.setProjected(projection != null && plan.supportsProjection());
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        List<String> indicatorKeys = indicatorService.getActiveRulesByContext(CONTEXT).stream()
+                .map(IndicatorRuleDTO::getKey)
+                .toList();
+        if (format == ExportFormat.CSV) {
+            List<String> header = new ArrayList<>(CSV_COLUMNS);
+            header.addAll(indicatorKeys);
+            writeCsvLine(writer, header);
+        }
+
+        List<Customer> pending = new ArrayList<>(INDICATOR_BATCH_SIZE);
+        try {
+            long count = dynamicQueryService.streamDynamicQuery(request, projection, row -> {
+                if (projection != null) {
+                    write(writer, format, toCustomer(row, request, plan, projection), indicatorKeys);
+                    return;
+                }
+                // Avaliação em Java: indicadores calculados em lote para não consultar as regras a cada linha
+                pending.add((Customer) row[0]);
+                if (pending.size() == INDICATOR_BATCH_SIZE) {
+                    writeWithJavaIndicators(writer, format, pending, indicatorKeys);
+                }
+            });
+            writeWithJavaIndicators(writer, format, pending, indicatorKeys);
+            writer.flush();
+
+            log.info("Exported {} customers as {}", count, format);
+            return count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private CustomerDTO toCustomer(Object[] row, DynamicQueryRequestDTO request, CompiledQueryPlan plan,
+                                   IndicatorProjection projection) {
+        CustomerDTO dto;
+        int offset;
+        if (Boolean.TRUE.equals(request.getProjected())) {
+            dto = ProjectionMapper.of(CustomerDTO.class, plan.getProjectionColumns()).map(row);
+            offset = plan.getProjectionColumns().size();
+        } else {
+            dto = CustomerDTO.fromEntity((Customer) row[0]);
+            offset = 1;
+        }
+        dto.setIndicators(projection.toIndicators(row, offset));
+        return dto;
+    }
+
+    private void writeWithJavaIndicators(Writer writer, ExportFormat format, List<Customer> customers,
+                                         List<String> indicatorKeys) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        List<List<IndicatorDTO>> indicators = indicatorService.evaluateIndicators(customers, CONTEXT);
+        for (int i = 0; i < customers.size(); i++) {
+            CustomerDTO dto = CustomerDTO.fromEntity(customers.get(i));
+            dto.setIndicators(indicators.get(i));
+            write(writer, format, dto, indicatorKeys);
+        }
+        customers.clear();
+    }
+
+    private void write(Writer writer, ExportFormat format, CustomerDTO customer, List<String> indicatorKeys) {
+        try {
+            if (format == ExportFormat.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(customer));
+                writer.write('\n');
+                return;
+            }
+
+            Map<String, Boolean> indicatorValues = new HashMap<>();
+            if (customer.getIndicators() != null) {
+                customer.getIndicators().forEach(indicator -> indicatorValues.put(indicator.getKey(), indicator.getValue()));
+            }
+            List<Object> values = new ArrayList<>(CSV_COLUMNS.size() + indicatorKeys.size());
+            Collections.addAll(values, customer.getId(), customer.getName(), customer.getTradeName(), customer.getCnpj(),
+                    customer.getActive(), customer.getBlocked(), customer.getCreatedAt(), customer.getUpdatedAt());
+            indicatorKeys.forEach(key -> values.add(indicatorValues.get(key)));
+            writeCsvLine(writer, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(escapeCsv(value.toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
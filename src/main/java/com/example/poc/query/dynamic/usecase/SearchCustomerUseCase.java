@@ -2,9 +2,19 @@ package com.example.poc.query.dynamic.usecase;
 
 import com.example.poc.query.dynamic.dto.*;
 import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.service.CompiledQueryPlan;
+import com.example.poc.query.dynamic.service.DynamicQueryPage;
 import com.example.poc.query.dynamic.service.DynamicQueryService;
+import com.example.poc.query.dynamic.service.IndicatorEvaluationMode;
+import com.example.poc.query.dynamic.service.IndicatorProjection;
 import com.example.poc.query.dynamic.service.IndicatorService;
+import com.example.poc.query.dynamic.service.ProjectionMapper;
+import com.example.poc.query.dynamic.service.QueryMetrics;
+import com.example.poc.query.dynamic.service.SearchEventLogger;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -21,54 +31,144 @@ public class SearchCustomerUseCase {
 
     private final DynamicQueryService dynamicQueryService;
     private final IndicatorService indicatorService;
+    private final QueryMetrics queryMetrics;
+    private final SearchEventLogger searchEventLogger;
+    private final CustomerSearchCache customerSearchCache;
+
+    @Value("${dynamic-query.indicators.evaluation-mode:SQL}")
+    private IndicatorEvaluationMode indicatorEvaluationMode;
 
     /**
      * Executa a busca e retorna os dados junto com as opções disponíveis de filtros e ordenações
      */
     public CustomerSearchResponseDTO executeWithOptions(CustomerFilterDTO filter, Pageable pageable) {
         // Executar busca
-        Page<CustomerDTO> customers = execute(filter, pageable);
+        SearchResult result = search(filter, pageable);
 
         // Buscar opções disponíveis
         AvailableQueriesDTO availableQueries = dynamicQueryService.getAvailableQueriesByContext(CONTEXT);
 
         return CustomerSearchResponseDTO.builder()
-                .customers(customers)
+                .customers(result.getCustomers())
                 .availableQueries(availableQueries)
+                .nextCursor(result.getNextCursor())
+                .countMode(result.getCountMode())
                 .build();
     }
 
+    /**
+     * Retorna apenas as opções disponíveis de filtros e ordenações, servidas do snapshot em memória
+     */
+    public AvailableQueriesDTO getAvailableQueries() {
+        return dynamicQueryService.getAvailableQueriesByContext(CONTEXT);
+    }
+
     public Page<CustomerDTO> execute(CustomerFilterDTO filter, Pageable pageable) {
+        return search(filter, pageable).getCustomers();
+    }
+
+    private SearchResult search(CustomerFilterDTO filter, Pageable pageable) {
+        long start = System.nanoTime();
+
         // Construir a requisição dinâmica
         DynamicQueryRequestDTO request = buildDynamicRequest(filter, pageable);
 
-        // Executar query
-        List<?> results = dynamicQueryService.executeDynamicQuery(request);
+        CompiledQueryPlan plan = dynamicQueryService.resolvePlan(request);
+
+        // Mesma requisição normalizada já respondida: dispensa a query de dados e a contagem
+        CustomerSearchCache.SearchKey cacheKey = customerSearchCache.isEnabled()
+                ? CustomerSearchCache.SearchKey.of(plan.getKey(), request)
+                : null;
+        if (cacheKey != null) {
+            SearchResult cached = customerSearchCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long cacheGeneration = customerSearchCache.generation();
+
+        IndicatorProjection projection = resolveIndicatorProjection(plan);
+
+        // Com os indicadores avaliados no banco, as linhas podem vir como projeção sem carregar entidades
+        request.setProjected(projection != null && plan.supportsProjection());
+
+        // Executar query (dados + total na mesma ida ao banco quando possível)
+        DynamicQueryPage page = dynamicQueryService.executeDynamicQueryPage(request, projection);
 
         // Converter para CustomerDTO e adicionar indicadores
-        List<CustomerDTO> customers = results.stream()
-                .map(obj -> {
-                    Customer customer = (Customer) obj;
-                    CustomerDTO dto = CustomerDTO.fromEntity(customer);
-                    // Avaliar e adicionar indicadores usando contexto CUSTOMER
-                    dto.setIndicators(indicatorService.evaluateIndicators(customer, CONTEXT));
-                    return dto;
-                })
-                .toList();
-
-        // Buscar total de elementos para paginação
-        Long total = dynamicQueryService.countDynamicQuery(request);
-
-        return new PageImpl<>(customers, pageable, total);
+        String indicatorEvaluation = (projection != null ? IndicatorEvaluationMode.SQL : IndicatorEvaluationMode.JAVA).name();
+        Timer.Sample indicators = queryMetrics.start();
+        List<CustomerDTO> customers = projection != null
+                ? toCustomersWithSqlIndicators(page, projection)
+                : toCustomersWithJavaIndicators(page.getRows());
+        queryMetrics.stopIndicators(indicators, plan.getMetricTags(), indicatorEvaluation);
+
+        searchEventLogger.log(plan, request, page, indicatorEvaluation, System.nanoTime() - start);
+
+        SearchResult result = new SearchResult(new PageImpl<>(customers, pageable, page.getTotal()),
+                page.getNextCursor(), page.getCountMode());
+        if (cacheKey != null) {
+            customerSearchCache.put(cacheKey, result, cacheGeneration);
+        }
+        return result;
+    }
+
+    /**
+     * Projeção de indicadores para o modo SQL; null quando os indicadores devem ser avaliados em Java
+     */
+    private IndicatorProjection resolveIndicatorProjection(CompiledQueryPlan plan) {
+        if (indicatorEvaluationMode != IndicatorEvaluationMode.SQL) {
+            return null;
+        }
+        if (!plan.selectsRootEntity()) {
+            return null;
+        }
+        return indicatorService.compileProjection(CONTEXT, plan.getRootAlias(), plan.getRootEntityClass())
+                .orElse(null);
     }
 
+    private List<CustomerDTO> toCustomersWithJavaIndicators(List<Object[]> rows) {
+        List<Object> entities = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            entities.add(row[0]);
+        }
+
+        // Avaliar indicadores da página inteira de uma vez usando contexto CUSTOMER
+        List<List<IndicatorDTO>> indicators = indicatorService.evaluateIndicators(entities, CONTEXT);
+
+        List<CustomerDTO> customers = new ArrayList<>(rows.size());
+        for (int i = 0; i < entities.size(); i++) {
+            CustomerDTO dto = CustomerDTO.fromEntity((Customer) entities.get(i));
+            dto.setIndicators(indicators.get(i));
+            customers.add(dto);
+        }
+        return customers;
+    }
+
+    private List<CustomerDTO> toCustomersWithSqlIndicators(DynamicQueryPage page, IndicatorProjection projection) {
+        // O banco devolve a entidade (ou as colunas da projeção) seguida das colunas booleanas dos indicadores
+        ProjectionMapper<CustomerDTO> mapper = page.getColumns() != null
+                ? ProjectionMapper.of(CustomerDTO.class, page.getColumns())
+                : null;
+
+        List<CustomerDTO> customers = new ArrayList<>(page.getRows().size());
+        for (Object[] row : page.getRows()) {
+            CustomerDTO dto = mapper != null ? mapper.map(row) : CustomerDTO.fromEntity((Customer) row[0]);
+            dto.setIndicators(projection.toIndicators(row, page.getDataColumnCount()));
+            customers.add(dto);
+        }
+        return customers;
+    }
 
     private DynamicQueryRequestDTO buildDynamicRequest(CustomerFilterDTO filter, Pageable pageable) {
         // Construir o request com os filtros e ordenação vindos do frontend
         DynamicQueryRequestDTO.DynamicQueryRequestDTOBuilder builder = DynamicQueryRequestDTO.builder()
                 .baseQueryName(BASE_QUERY)
                 .filters(filter.getFilters() != null ? filter.getFilters() : List.of())
-                .parameters(filter.getParameters() != null ? filter.getParameters() : Map.of());
+                .parameters(filter.getParameters() != null ? filter.getParameters() : Map.of())
+                .paginationMode(filter.getPaginationMode())
+                .cursor(filter.getCursor())
+                .countMode(filter.getCountMode());
 
         // Usar a ordenação vinda do filter, se existir
         if (filter.getOrder() != null && !filter.getOrder().isBlank()) {
@@ -84,5 +184,12 @@ public class SearchCustomerUseCase {
 
         return builder.build();
     }
-}
 
+    @Getter
+    @RequiredArgsConstructor
+    static class SearchResult {
+        private final Page<CustomerDTO> customers;
+        private final String nextCursor;
+        private final CountMode countMode;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.poc.query.dynamic.config;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Changelog Liquibase")
+class LiquibaseChangelogTest {
+
+    @Test
+    @DisplayName("Deve manter a projeção da query base de customers após reinicializações")
+    void shouldKeepCustomerBaseProjectionAcrossRestarts() throws Exception {
+        // Given
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:liquibase-changelog;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // When: primeira inicialização e uma reinicialização sobre o mesmo banco
+        migrate(dataSource);
+        migrate(dataSource);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT projection FROM query_base WHERE name_unique = 'customer_base_query'", String.class))
+                .isEqualTo("id, name, tradeName, cnpj, active, blocked, createdAt, updatedAt");
+    }
+
+    private static void migrate(DataSource dataSource) throws Exception {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("IndicatorProjectionCompiler Tests")
+class IndicatorProjectionCompilerTest {
+
+    private EntityType<Customer> customerType;
+    private IndicatorProjectionCompiler compiler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        Metamodel metamodel = mock(Metamodel.class);
+        customerType = mock(EntityType.class);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        when(metamodel.entity(Customer.class)).thenReturn(customerType);
+        when(metamodel.entity(String.class)).thenThrow(new IllegalArgumentException("Not an entity: String"));
+        when(customerType.getAttribute(anyString())).thenThrow(new IllegalArgumentException("Unknown attribute"));
+        doReturn(attribute("name", String.class, Attribute.PersistentAttributeType.BASIC))
+                .when(customerType).getAttribute("name");
+        doReturn(attribute("tradeName", String.class, Attribute.PersistentAttributeType.BASIC))
+                .when(customerType).getAttribute("tradeName");
+        doReturn(attribute("createdAt", LocalDateTime.class, Attribute.PersistentAttributeType.BASIC))
+                .when(customerType).getAttribute("createdAt");
+        doReturn(attribute("orders", List.class, Attribute.PersistentAttributeType.ONE_TO_MANY))
+                .when(customerType).getAttribute("orders");
+        compiler = new IndicatorProjectionCompiler(entityManager);
+    }
+
+    @Test
+    @DisplayName("Should escape LIKE wildcards in CONTAINS and match case-insensitively")
+    void shouldEscapeLikeWildcardsInContains() {
+        // When
+        Optional<IndicatorProjection> projection = compiler.compile(
+                List.of(rule("name", IndicatorRule.ConditionOperator.CONTAINS, "50%_OFF\\")), "c", Customer.class);
+
+        // Then
+        assertThat(projection).isPresent();
+        assertThat(projection.get().getSelectExpressions())
+                .containsExactly("CASE WHEN LOWER(c.name) LIKE :ind_0 ESCAPE '\\' THEN true ELSE false END");
+        assertThat(projection.get().getParameters()).containsExactly(entry("ind_0", "%50\\%\\_off\\\\%"));
+    }
+
+    @Test
+    @DisplayName("Should treat null columns as different in NOT_EQUALS, as the Java evaluation does")
+    void shouldMatchNullColumnsInNotEquals() {
+        // When
+        Optional<IndicatorProjection> projection = compiler.compile(List.of(
+                rule("tradeName", IndicatorRule.ConditionOperator.NOT_EQUALS, "Silva"),
+                rule("tradeName", IndicatorRule.ConditionOperator.EQUALS, "Silva")), "c", Customer.class);
+
+        // Then
+        assertThat(projection).isPresent();
+        assertThat(projection.get().getSelectExpressions()).containsExactly(
+                "CASE WHEN (c.tradeName IS NULL OR c.tradeName <> :ind_0) THEN true ELSE false END",
+                "CASE WHEN c.tradeName = :ind_1 THEN true ELSE false END");
+        assertThat(projection.get().getParameters()).containsExactly(entry("ind_0", "Silva"), entry("ind_1", "Silva"));
+    }
+
+    @Test
+    @DisplayName("Should fall back to Java evaluation when any rule cannot be expressed in SQL")
+    void shouldFallBackWhenRuleCannotBeExpressedInSql() {
+        // Given
+        IndicatorRule supported = rule("name", IndicatorRule.ConditionOperator.IS_NOT_NULL, null);
+
+        // Then
+        assertThat(compiler.compile(List.of(supported), "c", Customer.class)).isPresent();
+        assertThat(compiler.compile(List.of(supported,
+                rule("unknownField", IndicatorRule.ConditionOperator.IS_NULL, null)), "c", Customer.class)).isEmpty();
+        assertThat(compiler.compile(List.of(
+                rule("orders", IndicatorRule.ConditionOperator.IS_NULL, null)), "c", Customer.class)).isEmpty();
+        assertThat(compiler.compile(List.of(
+                rule("name", IndicatorRule.ConditionOperator.IS_TRUE, null)), "c", Customer.class)).isEmpty();
+        assertThat(compiler.compile(List.of(
+                rule("createdAt", IndicatorRule.ConditionOperator.CONTAINS, "2024")), "c", Customer.class)).isEmpty();
+        assertThat(compiler.compile(List.of(
+                rule("name", IndicatorRule.ConditionOperator.GREATER_THAN, "M")), "c", Customer.class)).isEmpty();
+        assertThat(compiler.compile(List.of(
+                rule("createdAt", IndicatorRule.ConditionOperator.LESS_THAN, "not a date")), "c", Customer.class))
+                .isEmpty();
+        assertThat(compiler.compile(List.of(supported), "s", String.class)).isEmpty();
+    }
+
+    private Attribute<?, ?> attribute(String name, Class<?> javaType, Attribute.PersistentAttributeType type) {
+        Attribute<?, ?> attribute = mock(Attribute.class);
+        when(attribute.getName()).thenReturn(name);
+        doReturn(javaType).when(attribute).getJavaType();
+        when(attribute.getPersistentAttributeType()).thenReturn(type);
+        return attribute;
+    }
+
+    private IndicatorRule rule(String field, IndicatorRule.ConditionOperator operator, String value) {
+        return IndicatorRule.builder()
+                .id(UUID.randomUUID())
+                .ruleKey("rule_" + field)
+                .name("Rule " + field)
+                .icon("icon")
+                .context("CUSTOMER")
+                .conditionField(field)
+                .conditionOperator(operator)
+                .conditionValue(value)
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("IndicatorRuleCompiler Tests")
+class IndicatorRuleCompilerTest {
+
+    private IndicatorRuleCompiler compiler;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new IndicatorRuleCompiler();
+        customer = Customer.builder()
+                .id(UUID.randomUUID())
+                .name("Empresa Silva LTDA")
+                .cnpj("11111111111111")
+                .active(true)
+                .blocked(false)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should evaluate boolean and null operators")
+    void shouldEvaluateBooleanAndNullOperators() {
+        assertThat(evaluate("active", IndicatorRule.ConditionOperator.IS_TRUE, null)).isTrue();
+        assertThat(evaluate("blocked", IndicatorRule.ConditionOperator.IS_FALSE, null)).isTrue();
+        assertThat(evaluate("deletedAt", IndicatorRule.ConditionOperator.IS_NULL, null)).isTrue();
+        assertThat(evaluate("deletedAt", IndicatorRule.ConditionOperator.IS_NOT_NULL, null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should evaluate equality and contains operators")
+    void shouldEvaluateEqualityAndContainsOperators() {
+        assertThat(evaluate("cnpj", IndicatorRule.ConditionOperator.EQUALS, "11111111111111")).isTrue();
+        assertThat(evaluate("cnpj", IndicatorRule.ConditionOperator.NOT_EQUALS, "11111111111111")).isFalse();
+        assertThat(evaluate("name", IndicatorRule.ConditionOperator.CONTAINS, "SILVA")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should read inherited fields")
+    void shouldReadInheritedFields() {
+        // Given
+        SpecialCustomer special = new SpecialCustomer();
+        special.setBlocked(true);
+
+        // When
+        CompiledIndicatorRule compiled = compiler.compile(
+                rule("blocked", IndicatorRule.ConditionOperator.IS_TRUE, null), SpecialCustomer.class);
+
+        // Then
+        assertThat(compiled.isValid()).isTrue();
+        assertThat(compiled.evaluate(special).getValue()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should mark rule as invalid when field does not exist")
+    void shouldMarkRuleInvalidWhenFieldDoesNotExist() {
+        // When
+        CompiledIndicatorRule compiled = compiler.compile(
+                rule("unknownField", IndicatorRule.ConditionOperator.IS_TRUE, null), Customer.class);
+
+        // Then
+        assertThat(compiled.isValid()).isFalse();
+        assertThat(compiled.getError()).contains("unknownField");
+    }
+
+    @Test
+    @DisplayName("Should reuse compiled rule until the rule changes")
+    void shouldReuseCompiledRuleUntilRuleChanges() {
+        // Given
+        IndicatorRule rule = rule("cnpj", IndicatorRule.ConditionOperator.EQUALS, "11111111111111");
+        CompiledIndicatorRule first = compiler.compile(rule, Customer.class);
+
+        // When
+        CompiledIndicatorRule second = compiler.compile(rule, Customer.class);
+        rule.setConditionValue("22222222222222");
+        CompiledIndicatorRule third = compiler.compile(rule, Customer.class);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(third).isNotSameAs(first);
+        assertThat(third.evaluate(customer).getValue()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should compare using the declared field type")
+    void shouldCompareUsingDeclaredFieldType() {
+        // Given
+        Metrics metrics = new Metrics(42, new BigDecimal("1500.50"), LocalDate.of(2024, 1, 15), 0.75);
+
+        // Then
+        assertThat(evaluate(metrics, "score", IndicatorRule.ConditionOperator.GREATER_THAN, "10")).isTrue();
+        assertThat(evaluate(metrics, "score", IndicatorRule.ConditionOperator.LESS_THAN, "10")).isFalse();
+        assertThat(evaluate(metrics, "score", IndicatorRule.ConditionOperator.GREATER_THAN, "41.5")).isTrue();
+        assertThat(evaluate(metrics, "revenue", IndicatorRule.ConditionOperator.EQUALS, "1500.5")).isTrue();
+        assertThat(evaluate(metrics, "since", IndicatorRule.ConditionOperator.GREATER_THAN, "2023-12-31")).isTrue();
+        assertThat(evaluate(metrics, "since", IndicatorRule.ConditionOperator.EQUALS, "2024-01-15")).isTrue();
+        assertThat(evaluate(metrics, "ratio", IndicatorRule.ConditionOperator.EQUALS, "0.75")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should never match when the rule value does not fit the field type")
+    void shouldNeverMatchWhenValueDoesNotFitFieldType() {
+        assertThat(evaluate("active", IndicatorRule.ConditionOperator.EQUALS, "yes")).isFalse();
+        assertThat(evaluate("active", IndicatorRule.ConditionOperator.NOT_EQUALS, "yes")).isTrue();
+        assertThat(evaluate("id", IndicatorRule.ConditionOperator.EQUALS, "not-a-uuid")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should match contains ignoring case without lowercasing the field")
+    void shouldMatchContainsIgnoringCase() {
+        assertThat(IndicatorRuleCompiler.containsIgnoreCase("Empresa Silva LTDA", "silva")).isTrue();
+        assertThat(IndicatorRuleCompiler.containsIgnoreCase("Empresa Silva LTDA", "santos")).isFalse();
+        assertThat(IndicatorRuleCompiler.containsIgnoreCase("ab", "abc")).isFalse();
+        assertThat(IndicatorRuleCompiler.containsIgnoreCase("abc", "")).isTrue();
+    }
+
+    private Boolean evaluate(Object entity, String field, IndicatorRule.ConditionOperator operator, String value) {
+        return compiler.compile(rule(field, operator, value), entity.getClass()).evaluate(entity).getValue();
+    }
+
+    private Boolean evaluate(String field, IndicatorRule.ConditionOperator operator, String value) {
+        return compiler.compile(rule(field, operator, value), Customer.class).evaluate(customer).getValue();
+    }
+
+    private IndicatorRule rule(String field, IndicatorRule.ConditionOperator operator, String value) {
+        return IndicatorRule.builder()
+                .id(UUID.randomUUID())
+                .ruleKey("rule_" + field)
+                .name("Rule " + field)
+                .icon("icon")
+                .context("CUSTOMER")
+                .conditionField(field)
+                .conditionOperator(operator)
+                .conditionValue(value)
+                .active(true)
+                .build();
+    }
+
+    static class SpecialCustomer extends Customer {
+    }
+
+    static class Metrics {
+        private final Integer score;
+        private final BigDecimal revenue;
+        private final LocalDate since;
+        private final double ratio;
+
+        Metrics(Integer score, BigDecimal revenue, LocalDate since, double ratio) {
+            this.score = score;
+            this.revenue = revenue;
+            this.since = since;
+            this.ratio = ratio;
+        }
+    }
+}
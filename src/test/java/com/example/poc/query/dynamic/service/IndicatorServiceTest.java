@@ -0,0 +1,84 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.IndicatorDTO;
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import com.example.poc.query.dynamic.repository.IndicatorRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("IndicatorService Tests")
+class IndicatorServiceTest {
+
+    private IndicatorRuleRepository indicatorRuleRepository;
+    private IndicatorRuleCompiler indicatorRuleCompiler;
+    private SimpleMeterRegistry meterRegistry;
+    private IndicatorService indicatorService;
+
+    @BeforeEach
+    void setUp() {
+        indicatorRuleRepository = mock(IndicatorRuleRepository.class);
+        indicatorRuleCompiler = spy(new IndicatorRuleCompiler());
+        meterRegistry = new SimpleMeterRegistry();
+        indicatorService = new IndicatorService(indicatorRuleRepository, indicatorRuleCompiler,
+                mock(IndicatorProjectionCompiler.class), new QueryMetrics(meterRegistry, mock(QueryPlanCache.class)));
+    }
+
+    @Test
+    @DisplayName("Should compile each rule once per batch and keep the rule order for every entity")
+    void shouldCompileRulesOncePerBatch() {
+        // Given
+        when(indicatorRuleRepository.findByContextAndActiveTrueOrderByDisplayOrderAsc("CUSTOMER")).thenReturn(List.of(
+                rule("active", IndicatorRule.ConditionOperator.IS_TRUE),
+                rule("unknownField", IndicatorRule.ConditionOperator.IS_TRUE),
+                rule("blocked", IndicatorRule.ConditionOperator.IS_TRUE)));
+        List<Customer> customers = List.of(customer(true, false), customer(false, true), customer(true, true));
+
+        // When
+        List<List<IndicatorDTO>> result = indicatorService.evaluateIndicators(customers, "CUSTOMER");
+
+        // Then
+        verify(indicatorRuleCompiler, times(3)).compile(any(), eq(Customer.class));
+        assertThat(result).hasSize(3);
+        assertThat(result.get(0)).extracting(IndicatorDTO::getKey).containsExactly("rule_active", "rule_blocked");
+        assertThat(result.get(0)).extracting(IndicatorDTO::getValue).containsExactly(true, false);
+        assertThat(result.get(1)).extracting(IndicatorDTO::getValue).containsExactly(false, true);
+        assertThat(result.get(2)).extracting(IndicatorDTO::getValue).containsExactly(true, true);
+        assertThat(meterRegistry.get("indicator.rule.errors").tag("rule", "rule_unknownField").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("indicator.rule.evaluation").tag("rule", "rule_active").timer().count())
+                .isEqualTo(1);
+    }
+
+    private IndicatorRule rule(String field, IndicatorRule.ConditionOperator operator) {
+        return IndicatorRule.builder()
+                .id(UUID.randomUUID())
+                .ruleKey("rule_" + field)
+                .name("Rule " + field)
+                .icon("icon")
+                .context("CUSTOMER")
+                .conditionField(field)
+                .conditionOperator(operator)
+                .active(true)
+                .build();
+    }
+
+    private Customer customer(boolean active, boolean blocked) {
+        return Customer.builder()
+                .id(UUID.randomUUID())
+                .name("Customer")
+                .cnpj("11111111111111")
+                .active(active)
+                .blocked(blocked)
+                .build();
+    }
+}
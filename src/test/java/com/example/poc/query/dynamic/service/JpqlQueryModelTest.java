@@ -0,0 +1,111 @@
+package com.example.poc.query.dynamic.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("JpqlQueryModel Tests")
+class JpqlQueryModelTest {
+
+    @Test
+    @DisplayName("Should generate data and count forms from the parsed base query")
+    void shouldGenerateDataAndCountForms() {
+        // Given
+        JpqlQueryModel model = JpqlQueryModel.parse("SELECT c FROM Customer c WHERE c.deletedAt IS NULL")
+                .withPredicate(JpqlQueryModel.predicateOf("AND c.active = true"))
+                .withOrderBy(JpqlQueryModel.orderItemsOf("ORDER BY c.name ASC"));
+
+        // Then
+        assertThat(model.selectsRootEntity()).isTrue();
+        assertThat(model.getRootEntity()).isEqualTo("Customer");
+        assertThat(model.toJpql())
+                .isEqualTo("SELECT c FROM Customer c WHERE c.deletedAt IS NULL AND c.active = true ORDER BY c.name ASC");
+        assertThat(model.toCountJpql())
+                .isEqualTo("SELECT COUNT(c) FROM Customer c WHERE c.deletedAt IS NULL AND c.active = true");
+        assertThat(model.toPlanJpql())
+                .isEqualTo("SELECT '1' FROM Customer c WHERE c.deletedAt IS NULL AND c.active = true ORDER BY c.name ASC");
+    }
+
+    @Test
+    @DisplayName("Should keep subqueries, literals and joins intact and use the declared alias")
+    void shouldKeepSubqueriesLiteralsAndJoinsIntact() {
+        // Given
+        String jpql = "select distinct cust from Customer cust join cust.contacts ct "
+                + "where ct.email like '%from x where%' and cust.id in (select o.customer.id from Order o where o.total > 10) "
+                + "order by cust.name";
+
+        // When
+        JpqlQueryModel model = JpqlQueryModel.parse(jpql);
+
+        // Then
+        assertThat(model.isDistinct()).isTrue();
+        assertThat(model.getRootAlias()).isEqualTo("cust");
+        assertThat(model.getFrom()).isEqualTo("Customer cust join cust.contacts ct");
+        assertThat(model.getOrderBy()).isEqualTo("cust.name");
+        assertThat(model.toCountJpql()).isEqualTo("SELECT COUNT(DISTINCT cust) FROM Customer cust join cust.contacts ct "
+                + "WHERE ct.email like '%from x where%' and cust.id in (select o.customer.id from Order o where o.total > 10)");
+    }
+
+    @Test
+    @DisplayName("Should count the root alias for multi-column and constructor projections")
+    void shouldCountRootAliasForProjections() {
+        // Given
+        JpqlQueryModel constructor = JpqlQueryModel.parse(
+                "SELECT NEW com.example.Dto(c.id, CONCAT(c.name, ', ', c.cnpj)) FROM Customer c");
+        JpqlQueryModel columns = JpqlQueryModel.parse("SELECT c.id, c.name FROM Customer c")
+                .withExtraSelections(List.of("COUNT(c) OVER ()"));
+
+        // Then
+        assertThat(constructor.getSelections()).hasSize(1);
+        assertThat(constructor.toCountJpql()).isEqualTo("SELECT COUNT(c) FROM Customer c");
+        assertThat(columns.toJpql()).isEqualTo("SELECT c.id, c.name, COUNT(c) OVER () FROM Customer c");
+        assertThat(columns.toCountJpql()).isEqualTo("SELECT COUNT(c) FROM Customer c");
+        assertThat(JpqlQueryModel.parse("SELECT c.tradeName FROM Customer c").toCountJpql())
+                .isEqualTo("SELECT COUNT(c) FROM Customer c");
+    }
+
+    @Test
+    @DisplayName("Should parenthesize predicates containing a top-level OR")
+    void shouldParenthesizePredicatesWithTopLevelOr() {
+        // Given
+        JpqlQueryModel model = JpqlQueryModel.parse("SELECT c FROM Customer c WHERE c.active = true OR c.blocked = true")
+                .withPredicate("c.name = :name");
+
+        // Then
+        assertThat(model.toJpql())
+                .isEqualTo("SELECT c FROM Customer c WHERE (c.active = true OR c.blocked = true) AND c.name = :name");
+    }
+
+    @Test
+    @DisplayName("Should render the same text regardless of fragment whitespace, keeping literals intact")
+    void shouldRenderCanonicalWhitespace() {
+        // Given
+        JpqlQueryModel compact = JpqlQueryModel.parse("SELECT c FROM Customer c WHERE c.name <> '  a  '")
+                .withPredicate(JpqlQueryModel.predicateOf("AND c.active = true"))
+                .withOrderBy(JpqlQueryModel.orderItemsOf("ORDER BY c.name ASC"));
+        JpqlQueryModel spread = JpqlQueryModel.parse("  SELECT c\n  FROM Customer c\n WHERE c.name <> '  a  '\n")
+                .withPredicate(JpqlQueryModel.predicateOf("\n  AND   c.active\t= true "))
+                .withOrderBy(JpqlQueryModel.orderItemsOf(" ORDER  BY\n c.name   ASC"));
+
+        // Then
+        assertThat(spread.toJpql()).isEqualTo(compact.toJpql())
+                .isEqualTo("SELECT c FROM Customer c WHERE c.name <> '  a  ' AND c.active = true ORDER BY c.name ASC");
+    }
+
+    @Test
+    @DisplayName("Should reject malformed queries and fragments")
+    void shouldRejectMalformedQueriesAndFragments() {
+        assertThatThrownBy(() -> JpqlQueryModel.parse("FROM Customer c"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JpqlQueryModel.parse("SELECT c FROM Customer c ORDER BY c.name WHERE c.active = true"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JpqlQueryModel.predicateOf("OR c.active = true"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JpqlQueryModel.orderItemsOf("c.name ASC"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.IndicatorRuleDTO;
+import com.example.poc.query.dynamic.entity.IndicatorRule;
+import com.example.poc.query.dynamic.entity.QueryFilter;
+import com.example.poc.query.dynamic.repository.QueryFilterRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Metadata Second-Level Cache Integration Tests")
+class MetadataCacheIntegrationTest {
+
+    @Autowired
+    private IndicatorService indicatorService;
+
+    @Autowired
+    private QueryFilterRepository queryFilterRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("Should serve repeated metadata lookups from the query cache")
+    void shouldServeRepeatedLookupsFromQueryCache() {
+        // Given
+        queryFilterRepository.findByNameUniqueAndActiveTrue("only_customer_actives");
+        long hitsBefore = statistics.getQueryCacheHitCount();
+
+        // When
+        queryFilterRepository.findByNameUniqueAndActiveTrue("only_customer_actives");
+        queryFilterRepository.findByNameUniqueAndActiveTrue("only_customer_actives");
+
+        // Then
+        assertThat(statistics.getQueryCacheHitCount()).isGreaterThanOrEqualTo(hitsBefore + 2);
+        assertThat(meterRegistry.find("hibernate.cache.query.requests").tag("result", "hit").functionCounter())
+                .isNotNull();
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "default-query-results-region").tag("result", "hit")
+                .functionCounter().count()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.find("cache.gets").tag("cache", QueryFilter.class.getName()).functionCounter())
+                .isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should return the updated rule after a write through IndicatorService")
+    void shouldReturnUpdatedRuleAfterWrite() {
+        // Given
+        IndicatorRuleDTO rule = indicatorService.getActiveRulesByContext("CUSTOMER").stream()
+                .filter(r -> r.getKey().equals("customer_is_blocked"))
+                .findFirst()
+                .orElseThrow();
+        String originalName = rule.getName();
+        indicatorService.getActiveRulesByContext("CUSTOMER");
+
+        try {
+            // When
+            rule.setName("Bloqueado (alterado)");
+            indicatorService.updateRule(rule.getId(), rule);
+
+            // Then
+            assertThat(indicatorService.getActiveRulesByContext("CUSTOMER"))
+                    .filteredOn(r -> r.getKey().equals("customer_is_blocked"))
+                    .extracting(IndicatorRuleDTO::getName)
+                    .containsExactly("Bloqueado (alterado)");
+            assertThat(statistics.getDomainDataRegionStatistics(IndicatorRule.class.getName()).getPutCount())
+                    .isPositive();
+        } finally {
+            rule.setName(originalName);
+            indicatorService.updateRule(rule.getId(), rule);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.poc.query.dynamic.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ParallelQueryExecutor Tests")
+class ParallelQueryExecutorTest {
+
+    private Session session;
+    private HikariPoolMXBean pool;
+    private PlatformTransactionManager transactionManager;
+    private ParallelQueryExecutor executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        EntityManager entityManager = mock(EntityManager.class);
+        session = mock(Session.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        pool = mock(HikariPoolMXBean.class);
+        when(pool.getIdleConnections()).thenReturn(1);
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(dataSource.unwrap(HikariDataSource.class)).thenReturn(dataSource);
+        when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        executor = new ParallelQueryExecutor(entityManager, dataSource, transactionManager, new SimpleMeterRegistry(),
+                true, 2, Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should run the task in another thread when the pool has an idle connection")
+    void shouldRunTaskInAnotherThread() {
+        // Given
+        Thread caller = Thread.currentThread();
+
+        // When
+        Thread worker = executor.submit(Thread::currentThread).join();
+
+        // Then
+        assertThat(worker).isNotSameAs(caller);
+    }
+
+    @Test
+    @DisplayName("Should run the task in the caller thread when the pool has no idle connection")
+    void shouldRunInlineWithoutIdleConnection() {
+        // Given
+        when(pool.getIdleConnections()).thenReturn(0);
+        Thread caller = Thread.currentThread();
+
+        // When
+        CompletableFuture<Thread> future = executor.submit(Thread::currentThread);
+
+        // Then
+        assertThat(future).isDone();
+        assertThat(future.join()).isSameAs(caller);
+    }
+
+    @Test
+    @DisplayName("Should give up without running the task when no connection is acquired in time")
+    void shouldGiveUpWhenConnectionIsNotAcquired() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new SimpleTransactionStatus();
+        });
+        AtomicBoolean ran = new AtomicBoolean();
+
+        // When
+        CompletableFuture<String> future = executor.submit(() -> {
+            ran.set(true);
+            return "late";
+        });
+
+        // Then
+        assertThatThrownBy(future::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        release.countDown();
+        verify(transactionManager, timeout(5000)).commit(any());
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should cancel the statement running in the database when the future is cancelled")
+    void shouldCancelRunningStatement() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.countDown();
+            return null;
+        }).when(session).cancelQuery();
+        CompletableFuture<String> future = executor.submit(() -> {
+            started.countDown();
+            await(release);
+            return "done";
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        future.cancel(true);
+
+        // Then
+        verify(session).cancelQuery();
+        assertThat(future).isCancelled();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
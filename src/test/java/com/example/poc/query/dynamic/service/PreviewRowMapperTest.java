@@ -0,0 +1,70 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.Customer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PreviewRowMapper Tests")
+class PreviewRowMapperTest {
+
+    @Test
+    @DisplayName("Should map declared fields, superclass first, skipping static and transient fields")
+    void shouldMapDeclaredFieldsSuperclassFirst() {
+        // Given
+        Special special = new Special();
+        special.setName("Empresa Silva LTDA");
+        special.setActive(true);
+        special.code = "X1";
+        special.cachedLabel = "ignored";
+
+        // When
+        PreviewRowMapper mapper = PreviewRowMapper.forResult(special);
+        Object[] row = mapper.map(special);
+
+        // Then
+        assertThat(mapper.getColumns()).startsWith("id", "name").endsWith("code");
+        assertThat(mapper.getColumns()).doesNotContain("VERSION", "cachedLabel");
+        assertThat(row).hasSize(mapper.getColumns().size());
+        assertThat(row[mapper.getColumns().indexOf("name")]).isEqualTo("Empresa Silva LTDA");
+        assertThat(row[mapper.getColumns().indexOf("active")]).isEqualTo(true);
+        assertThat(row[mapper.getColumns().indexOf("code")]).isEqualTo("X1");
+    }
+
+    @Test
+    @DisplayName("Should resolve the mapper once per class")
+    void shouldResolveMapperOncePerClass() {
+        // When
+        PreviewRowMapper first = PreviewRowMapper.forResult(Customer.builder().id(UUID.randomUUID()).build());
+        PreviewRowMapper second = PreviewRowMapper.forResult(Customer.builder().name("Outra").build());
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(PreviewRowMapper.forResult(new Special())).isNotSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Should map simple values and nulls to a single value column")
+    void shouldMapSimpleValuesToSingleColumn() {
+        // When
+        PreviewRowMapper text = PreviewRowMapper.forResult("Silva");
+        PreviewRowMapper date = PreviewRowMapper.forResult(LocalDate.of(2024, 1, 15));
+        PreviewRowMapper none = PreviewRowMapper.forResult(null);
+
+        // Then
+        assertThat(text.getColumns()).containsExactly("value");
+        assertThat(text.map("Silva")).containsExactly("Silva");
+        assertThat(date).isSameAs(text);
+        assertThat(none.map(null)).containsExactly((Object) null);
+    }
+
+    static class Special extends Customer {
+        static final int VERSION = 1;
+        private String code;
+        private transient String cachedLabel;
+    }
+}
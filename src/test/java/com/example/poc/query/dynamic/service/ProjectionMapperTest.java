@@ -0,0 +1,50 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.CustomerDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ProjectionMapper Tests")
+class ProjectionMapperTest {
+
+    @Test
+    @DisplayName("Should map projected columns by name and ignore trailing values")
+    void shouldMapProjectedColumnsByName() {
+        // Given
+        UUID id = UUID.randomUUID();
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 15, 10, 30);
+        Object[] row = {id, "Empresa Silva LTDA", true, createdAt, Boolean.TRUE};
+
+        // When
+        CustomerDTO dto = ProjectionMapper.of(CustomerDTO.class, List.of("id", "name", "active", "createdAt")).map(row);
+
+        // Then
+        assertThat(dto.getId()).isEqualTo(id);
+        assertThat(dto.getName()).isEqualTo("Empresa Silva LTDA");
+        assertThat(dto.getActive()).isTrue();
+        assertThat(dto.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(dto.getCnpj()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should reuse the mapper and skip columns without setter")
+    void shouldReuseMapperAndSkipUnknownColumns() {
+        // Given
+        List<String> columns = List.of("deletedAt", "cnpj");
+
+        // When
+        ProjectionMapper<CustomerDTO> first = ProjectionMapper.of(CustomerDTO.class, columns);
+        ProjectionMapper<CustomerDTO> second = ProjectionMapper.of(CustomerDTO.class, List.of("deletedAt", "cnpj"));
+        CustomerDTO dto = first.map(new Object[]{LocalDateTime.now(), "11111111111111"});
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(dto.getCnpj()).isEqualTo("11111111111111");
+    }
+}
@@ -4,11 +4,15 @@ import com.example.poc.query.dynamic.dto.*;
 import com.example.poc.query.dynamic.entity.QueryBase;
 import com.example.poc.query.dynamic.entity.QueryFilter;
 import com.example.poc.query.dynamic.entity.QueryOrder;
+import com.example.poc.query.dynamic.event.QueryConfigChangedEvent;
 import com.example.poc.query.dynamic.repository.QueryBaseRepository;
 import com.example.poc.query.dynamic.repository.QueryFilterRepository;
 import com.example.poc.query.dynamic.repository.QueryOrderRepository;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Parameter;
 import jakarta.persistence.Query;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.TypedQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -18,15 +22,19 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,6 +53,21 @@ class QueryConfigServiceTest {
     @Mock
     private EntityManager entityManager;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private RowCountEstimator rowCountEstimator;
+
+    @Mock
+    private QueryPreviewExecutor queryPreviewExecutor;
+
+    @Mock
+    private QueryPlanExplainer queryPlanExplainer;
+
+    @Mock
+    private QueryFragmentValidator queryFragmentValidator;
+
     @InjectMocks
     private QueryConfigService queryConfigService;
 
@@ -55,6 +78,11 @@ class QueryConfigServiceTest {
     void setUp() {
         testId = UUID.randomUUID();
         now = LocalDateTime.now();
+        // Fragments compile against the context's base queries
+        lenient().when(queryFragmentValidator.validateFilter(anyString(), anyString()))
+                .thenReturn(new CompiledFragment("active = true", Map.of()));
+        lenient().when(queryFragmentValidator.validateOrder(anyString(), anyString()))
+                .thenReturn(new CompiledFragment("name ASC", Map.of()));
     }
 
     @Nested
@@ -173,6 +201,60 @@ class QueryConfigServiceTest {
             assertThat(existingEntity.getActive()).isFalse();
         }
 
+        @Test
+        @DisplayName("Should recompile the context's filters and orders when the base query changes")
+        void shouldRecompileFragmentsWhenBaseQueryChanges() {
+            // Given
+            QueryBase existingEntity = createQueryBaseEntity("query1", "context1");
+            QueryBaseDTO dto = createQueryBaseDTO("query1", "context1", true);
+            dto.setQuery("SELECT c FROM Customer c");
+            QueryFilter filter = createQueryFilterEntity("filter1", "context1");
+            QueryOrder order = createQueryOrderEntity("order1", "context1");
+            when(queryBaseRepository.findById(testId)).thenReturn(Optional.of(existingEntity));
+            when(queryBaseRepository.save(any(QueryBase.class))).thenReturn(existingEntity);
+            when(queryBaseRepository.findByContextAndActiveTrueOrderByNameUnique("context1"))
+                    .thenReturn(List.of(existingEntity));
+            when(queryFilterRepository.findByContextAndActiveTrue("context1")).thenReturn(List.of(filter));
+            when(queryOrderRepository.findByContextAndActiveTrue("context1")).thenReturn(List.of(order));
+            when(queryFragmentValidator.validateFilter("context1", "WHERE active = true"))
+                    .thenReturn(new CompiledFragment("c.active = :active", Map.of("active", "Boolean")));
+
+            // When
+            queryConfigService.updateQueryBase(testId, dto);
+
+            // Then
+            assertThat(filter.getCompiledFragment()).isEqualTo("c.active = :active");
+            assertThat(filter.getParameterTypes()).isEqualTo("active:Boolean");
+            assertThat(order.getCompiledFragment()).isEqualTo("name ASC");
+            ArgumentCaptor<QueryConfigChangedEvent> captor = ArgumentCaptor.forClass(QueryConfigChangedEvent.class);
+            verify(eventPublisher).publishEvent(captor.capture());
+            assertThat(captor.getValue().getContext()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject a base query change that breaks a filter of the context")
+        void shouldRejectBaseQueryChangeThatBreaksFilter() {
+            // Given
+            QueryBase existingEntity = createQueryBaseEntity("query1", "context1");
+            QueryBaseDTO dto = createQueryBaseDTO("query1", "context1", true);
+            dto.setQuery("SELECT p FROM Product p");
+            when(queryBaseRepository.findById(testId)).thenReturn(Optional.of(existingEntity));
+            when(queryBaseRepository.save(any(QueryBase.class))).thenReturn(existingEntity);
+            when(queryBaseRepository.findByContextAndActiveTrueOrderByNameUnique("context1"))
+                    .thenReturn(List.of(existingEntity));
+            when(queryFilterRepository.findByContextAndActiveTrue("context1"))
+                    .thenReturn(List.of(createQueryFilterEntity("filter1", "context1")));
+            when(queryFragmentValidator.validateFilter("context1", "WHERE active = true"))
+                    .thenThrow(new InvalidQueryFragmentException("Invalid filter: Could not resolve attribute 'active'"));
+
+            // When & Then
+            assertThatThrownBy(() -> queryConfigService.updateQueryBase(testId, dto))
+                    .isInstanceOf(InvalidQueryFragmentException.class)
+                    .hasMessageContaining("Filter filter1 does not compile with the updated base query")
+                    .hasMessageContaining("Could not resolve attribute 'active'");
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
         @Test
         @DisplayName("Should throw exception when updating non-existent query base")
         void shouldThrowExceptionWhenUpdatingNonExistentQueryBase() {
@@ -198,6 +280,25 @@ class QueryConfigServiceTest {
             // Then
             verify(queryBaseRepository).deleteById(testId);
         }
+
+        @Test
+        @DisplayName("Should publish config changed event when query base is saved or deleted")
+        void shouldPublishConfigChangedEvent() {
+            // Given
+            QueryBaseDTO dto = createQueryBaseDTO("query1", "context1", true);
+            QueryBase savedEntity = createQueryBaseEntity("query1", "context1");
+            when(queryBaseRepository.save(any(QueryBase.class))).thenReturn(savedEntity);
+
+            // When
+            queryConfigService.createQueryBase(dto);
+            queryConfigService.deleteQueryBase(testId);
+
+            // Then
+            ArgumentCaptor<QueryConfigChangedEvent> captor = ArgumentCaptor.forClass(QueryConfigChangedEvent.class);
+            verify(eventPublisher, times(2)).publishEvent(captor.capture());
+            assertThat(captor.getAllValues().get(0).getContext()).isEqualTo("context1");
+            assertThat(captor.getAllValues().get(1).getContext()).isNull();
+        }
     }
 
     @Nested
@@ -279,6 +380,44 @@ class QueryConfigServiceTest {
             assertThat(existingEntity.getNameUnique()).isEqualTo("updated_filter");
         }
 
+        @Test
+        @DisplayName("Should store the compiled predicate and parameter types of a new filter")
+        void shouldStoreCompiledFilter() {
+            // Given
+            QueryFilterDTO dto = createQueryFilterDTO("filter_by_cnpj", "CUSTOMER", true);
+            dto.setQueryFragment("AND c.cnpj = :cnpj");
+            when(queryFragmentValidator.validateFilter("CUSTOMER", "AND c.cnpj = :cnpj"))
+                    .thenReturn(new CompiledFragment("c.cnpj = :cnpj", Map.of("cnpj", "String")));
+            when(queryFilterRepository.save(any(QueryFilter.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+            // When
+            QueryFilterDTO result = queryConfigService.createQueryFilter(dto);
+
+            // Then
+            ArgumentCaptor<QueryFilter> captor = ArgumentCaptor.forClass(QueryFilter.class);
+            verify(queryFilterRepository).save(captor.capture());
+            assertThat(captor.getValue().getQueryFragment()).isEqualTo("AND c.cnpj = :cnpj");
+            assertThat(captor.getValue().getCompiledFragment()).isEqualTo("c.cnpj = :cnpj");
+            assertThat(captor.getValue().getParameterTypes()).isEqualTo("cnpj:String");
+            assertThat(result.getParameterTypes()).containsExactly(Map.entry("cnpj", "String"));
+        }
+
+        @Test
+        @DisplayName("Should reject a filter that does not compile without saving it")
+        void shouldRejectInvalidFilter() {
+            // Given
+            QueryFilterDTO dto = createQueryFilterDTO("broken_filter", "CUSTOMER", true);
+            when(queryFragmentValidator.validateFilter(anyString(), anyString()))
+                    .thenThrow(new InvalidQueryFragmentException("Invalid filter: Could not resolve attribute 'unknown'"));
+
+            // When & Then
+            assertThatThrownBy(() -> queryConfigService.createQueryFilter(dto))
+                    .isInstanceOf(InvalidQueryFragmentException.class)
+                    .hasMessageContaining("unknown");
+            verify(queryFilterRepository, never()).save(any());
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
         @Test
         @DisplayName("Should throw exception when updating non-existent query filter")
         void shouldThrowExceptionWhenUpdatingNonExistentQueryFilter() {
@@ -411,12 +550,23 @@ class QueryConfigServiceTest {
     class QueryPreviewOperations {
 
         private Query query;
+        private TypedQuery<Long> countQuery;
 
         @BeforeEach
+        @SuppressWarnings("unchecked")
         void setUpPreview() {
             query = mock(Query.class);
-            // Manually inject the EntityManager mock into the service
+            countQuery = mock(TypedQuery.class);
+            // Manually inject the EntityManager mock and the preview settings into the service
             ReflectionTestUtils.setField(queryConfigService, "entityManager", entityManager);
+            ReflectionTestUtils.setField(queryConfigService, "previewTimeout", Duration.ofSeconds(5));
+            ReflectionTestUtils.setField(queryConfigService, "previewCountMode", CountMode.EXACT);
+            ReflectionTestUtils.setField(queryConfigService, "countCap", 1000);
+            ReflectionTestUtils.setField(queryConfigService, "previewDefaultRows", 10);
+            ReflectionTestUtils.setField(queryConfigService, "previewMaxRows", 100);
+            // Run the preview lane inline
+            lenient().when(queryPreviewExecutor.execute(anyString(), any()))
+                    .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
         }
 
         @Test
@@ -424,12 +574,12 @@ class QueryConfigServiceTest {
         void shouldPreviewQueryWithSingleValues() {
             // Given
             QueryPreviewRequest request = QueryPreviewRequest.builder()
-                    .baseQuery("SELECT * FROM customer")
+                    .baseQuery("SELECT c.name FROM Customer c")
                     .build();
 
             List<Object> mockResults = Arrays.asList("result1", "result2", "result3");
 
-            when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+            when(entityManager.createQuery("SELECT c.name FROM Customer c")).thenReturn(query);
             when(query.getResultList()).thenReturn(mockResults);
 
             // When
@@ -438,13 +588,16 @@ class QueryConfigServiceTest {
             // Then
             assertThat(result).isNotNull();
             assertThat(result.isValid()).isTrue();
-            assertThat(result.getFinalQuery()).isEqualTo("SELECT * FROM customer");
-            assertThat(result.getPreviewResults()).hasSize(3);
-            assertThat(result.getPreviewResults().get(0).get("result")).isEqualTo("result1");
+            assertThat(result.getFinalQuery()).isEqualTo("SELECT c.name FROM Customer c");
+            assertThat(result.getColumns()).containsExactly("value");
+            assertThat(result.getRows()).hasSize(3);
+            assertThat(result.getRows().get(0)).containsExactly("result1");
             assertThat(result.getTotalResults()).isEqualTo(3);
+            assertThat(result.getCountMode()).isEqualTo(CountMode.EXACT);
 
             verify(query).setMaxResults(10);
-            verify(entityManager, times(2)).createNativeQuery(anyString());
+            // Fewer rows than the preview limit: the total is known without a count query
+            verify(entityManager, never()).createQuery(anyString(), eq(Long.class));
         }
 
         @Test
@@ -452,14 +605,14 @@ class QueryConfigServiceTest {
         void shouldPreviewQueryWithArrayResults() {
             // Given
             QueryPreviewRequest request = QueryPreviewRequest.builder()
-                    .baseQuery("SELECT id, name FROM customer")
+                    .baseQuery("SELECT c.id, c.name FROM Customer c")
                     .build();
 
             Object[] row1 = new Object[]{1, "John"};
             Object[] row2 = new Object[]{2, "Jane"};
             List<Object> mockResults = Arrays.asList(row1, row2);
 
-            when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+            when(entityManager.createQuery(anyString())).thenReturn(query);
             when(query.getResultList()).thenReturn(mockResults);
 
             // When
@@ -468,27 +621,46 @@ class QueryConfigServiceTest {
             // Then
             assertThat(result).isNotNull();
             assertThat(result.isValid()).isTrue();
-            assertThat(result.getPreviewResults()).hasSize(2);
-            assertThat(result.getPreviewResults().get(0).get("column_1")).isEqualTo(1);
-            assertThat(result.getPreviewResults().get(0).get("column_2")).isEqualTo("John");
-            assertThat(result.getPreviewResults().get(1).get("column_1")).isEqualTo(2);
-            assertThat(result.getPreviewResults().get(1).get("column_2")).isEqualTo("Jane");
+            // Column names come from the selected expressions, once for the whole preview
+            assertThat(result.getColumns()).containsExactly("c.id", "c.name");
+            assertThat(result.getRows()).containsExactly(row1, row2);
         }
 
         @Test
-        @DisplayName("Should preview query with filters and orders")
-        void shouldPreviewQueryWithFiltersAndOrders() {
+        @DisplayName("Should convert entities into columns of their own fields")
+        void shouldConvertEntitiesIntoColumns() {
             // Given
             QueryPreviewRequest request = QueryPreviewRequest.builder()
-                    .baseQuery("SELECT * FROM customer")
-                    .filters(Arrays.asList("WHERE active = true", "AND age > 18"))
-                    .orders(Collections.singletonList("ORDER BY name ASC"))
+                    .baseQuery("SELECT b FROM QueryBase b")
                     .build();
+            QueryBase entity = createQueryBaseEntity("customer_base_query", "CUSTOMER");
 
-            List<Object> mockResults = Collections.singletonList("result");
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(List.of(entity));
 
-            when(entityManager.createNativeQuery(anyString())).thenReturn(query);
-            when(query.getResultList()).thenReturn(mockResults);
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(result.getColumns()).startsWith("id", "nameUnique", "context", "query");
+            assertThat(result.getRows()).hasSize(1);
+            assertThat(result.getRows().get(0)[result.getColumns().indexOf("nameUnique")]).isEqualTo("customer_base_query");
+        }
+
+        @Test
+        @DisplayName("Should combine filters and orders and count with a derived COUNT query")
+        void shouldPreviewQueryWithFiltersAndOrders() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c FROM Customer c")
+                    .filters(Arrays.asList("WHERE c.active = true", "AND c.age > 18"))
+                    .orders(Arrays.asList("ORDER BY c.name ASC", ", c.createdAt DESC"))
+                    .build();
+
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(Collections.nCopies(10, "result"));
+            when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(countQuery);
+            when(countQuery.getSingleResult()).thenReturn(42L);
 
             // When
             QueryPreviewResponse result = queryConfigService.previewQuery(request);
@@ -496,29 +668,36 @@ class QueryConfigServiceTest {
             // Then
             assertThat(result).isNotNull();
             assertThat(result.isValid()).isTrue();
-            assertThat(result.getFinalQuery()).contains("WHERE active = true");
-            assertThat(result.getFinalQuery()).contains("AND age > 18");
-            assertThat(result.getFinalQuery()).contains("ORDER BY name ASC");
+            assertThat(result.getFinalQuery()).isEqualTo(
+                    "SELECT c FROM Customer c WHERE c.active = true AND c.age > 18 ORDER BY c.name ASC, c.createdAt DESC");
+            assertThat(result.getTotalResults()).isEqualTo(42);
+            assertThat(result.getCountMode()).isEqualTo(CountMode.EXACT);
+
+            verify(entityManager).createQuery(
+                    "SELECT COUNT(c) FROM Customer c WHERE c.active = true AND c.age > 18", Long.class);
+            verify(countQuery).setHint("jakarta.persistence.query.timeout", 5000L);
         }
 
         @Test
-        @DisplayName("Should preview query with parameters")
+        @DisplayName("Should bind only the parameters declared by the query")
+        @SuppressWarnings({"unchecked", "rawtypes"})
         void shouldPreviewQueryWithParameters() {
             // Given
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("name", "John");
-            parameters.put("age", 25);
+            parameters.put("unused", 25);
 
             QueryPreviewRequest request = QueryPreviewRequest.builder()
-                    .baseQuery("SELECT * FROM customer WHERE name = :name AND age = :age")
+                    .baseQuery("SELECT c FROM Customer c WHERE c.name = :name")
                     .parameters(parameters)
                     .build();
 
-            List<Object> mockResults = Collections.singletonList("result");
+            Parameter nameParameter = mock(Parameter.class);
+            when(nameParameter.getName()).thenReturn("name");
 
-            when(entityManager.createNativeQuery(anyString())).thenReturn(query);
-            when(query.setParameter(anyString(), any())).thenReturn(query);
-            when(query.getResultList()).thenReturn(mockResults);
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getParameters()).thenReturn(Set.of(nameParameter));
+            when(query.getResultList()).thenReturn(Collections.singletonList("result"));
 
             // When
             QueryPreviewResponse result = queryConfigService.previewQuery(request);
@@ -526,7 +705,8 @@ class QueryConfigServiceTest {
             // Then
             assertThat(result).isNotNull();
             assertThat(result.isValid()).isTrue();
-            verify(query, atLeast(2)).setParameter(anyString(), any());
+            verify(query).setParameter("name", "John");
+            verify(query, never()).setParameter(eq("unused"), any());
         }
 
         @Test
@@ -534,11 +714,11 @@ class QueryConfigServiceTest {
         void shouldHandleQueryPreviewError() {
             // Given
             QueryPreviewRequest request = QueryPreviewRequest.builder()
-                    .baseQuery("INVALID SQL QUERY")
+                    .baseQuery("SELECT c FROM Customer c WHERE c.unknown = true")
                     .build();
 
-            when(entityManager.createNativeQuery(anyString()))
-                    .thenThrow(new RuntimeException("SQL syntax error"));
+            when(entityManager.createQuery(anyString()))
+                    .thenThrow(new IllegalArgumentException("Could not resolve attribute 'unknown'"));
 
             // When
             QueryPreviewResponse result = queryConfigService.previewQuery(request);
@@ -546,31 +726,198 @@ class QueryConfigServiceTest {
             // Then
             assertThat(result).isNotNull();
             assertThat(result.isValid()).isFalse();
-            assertThat(result.getErrorMessage()).isEqualTo("SQL syntax error");
-            assertThat(result.getPreviewResults()).isEmpty();
+            assertThat(result.getErrorMessage()).isEqualTo("Could not resolve attribute 'unknown'");
+            assertThat(result.getRows()).isEmpty();
             assertThat(result.getTotalResults()).isZero();
         }
 
+        @Test
+        @DisplayName("Should reject a malformed base query without touching the database")
+        void shouldRejectMalformedBaseQuery() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("INVALID SQL QUERY")
+                    .build();
+
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(result.isValid()).isFalse();
+            assertThat(result.getFinalQuery()).isEqualTo("INVALID SQL QUERY");
+            assertThat(result.getErrorMessage()).contains("SELECT ... FROM");
+            verifyNoInteractions(entityManager);
+        }
+
         @Test
         @DisplayName("Should limit preview results to 10")
         void shouldLimitPreviewResults() {
             // Given
             QueryPreviewRequest request = QueryPreviewRequest.builder()
-                    .baseQuery("SELECT * FROM customer")
+                    .baseQuery("SELECT c.name FROM Customer c")
                     .build();
 
             List<Object> mockResults = Arrays.asList(
                     "r1", "r2", "r3", "r4", "r5", "r6", "r7", "r8", "r9", "r10"
             );
 
-            when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+            when(entityManager.createQuery(anyString())).thenReturn(query);
             when(query.getResultList()).thenReturn(mockResults);
+            when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(countQuery);
+            when(countQuery.getSingleResult()).thenReturn(25L);
 
             // When
-            queryConfigService.previewQuery(request);
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
 
             // Then
             verify(query).setMaxResults(10);
+            assertThat(result.getRows()).hasSize(10);
+            assertThat(result.getTotalResults()).isEqualTo(25);
+            // Counts rows, not non-null names
+            verify(entityManager).createQuery("SELECT COUNT(c) FROM Customer c", Long.class);
+        }
+
+        @Test
+        @DisplayName("Should cap the requested rows and echo the preview id")
+        void shouldCapRequestedRowsAndEchoPreviewId() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c FROM Customer c")
+                    .previewId("preview-1")
+                    .maxRows(500)
+                    .build();
+
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(Collections.nCopies(3, "result"));
+
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            verify(query).setMaxResults(100);
+            verify(queryPreviewExecutor).execute(eq("preview-1"), any());
+            assertThat(result.getPreviewId()).isEqualTo("preview-1");
+            assertThat(result.getTotalResults()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should return an invalid preview when the preview lane is full")
+        void shouldReturnInvalidPreviewWhenLaneIsFull() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c FROM Customer c")
+                    .build();
+            doThrow(new RuntimeException("Too many previews running, try again later"))
+                    .when(queryPreviewExecutor).execute(anyString(), any());
+
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(result.isValid()).isFalse();
+            assertThat(result.getPreviewId()).isNotBlank();
+            assertThat(result.getErrorMessage()).contains("Too many previews");
+            verifyNoInteractions(entityManager);
+        }
+
+        @Test
+        @DisplayName("Should keep the preview without a total when the count times out")
+        void shouldKeepPreviewWhenCountTimesOut() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c.name FROM Customer c")
+                    .build();
+
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(Collections.nCopies(10, "name"));
+            when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(countQuery);
+            when(countQuery.getSingleResult()).thenThrow(new QueryTimeoutException("canceling statement"));
+
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(result.isValid()).isTrue();
+            assertThat(result.getRows()).hasSize(10);
+            assertThat(result.getTotalResults()).isEqualTo(10);
+            assertThat(result.getCountMode()).isEqualTo(CountMode.NONE);
+        }
+
+        @Test
+        @DisplayName("Should return the planner estimate for large results in ESTIMATED mode")
+        void shouldReturnEstimateForLargeResults() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c FROM Customer c")
+                    .countMode(CountMode.ESTIMATED)
+                    .build();
+
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(Collections.nCopies(10, "result"));
+            when(rowCountEstimator.estimate(eq("SELECT '1' FROM Customer c"), any())).thenReturn(OptionalLong.of(250_000));
+
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(result.getTotalResults()).isEqualTo(250_000);
+            assertThat(result.getCountMode()).isEqualTo(CountMode.ESTIMATED);
+            verify(entityManager, never()).createQuery(anyString(), eq(Long.class));
+        }
+
+        @Test
+        @DisplayName("Should skip the count in NONE mode")
+        void shouldSkipCountInNoneMode() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c FROM Customer c")
+                    .countMode(CountMode.NONE)
+                    .build();
+
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(Collections.nCopies(10, "result"));
+
+            // When
+            QueryPreviewResponse result = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(result.getTotalResults()).isEqualTo(10);
+            assertThat(result.getCountMode()).isEqualTo(CountMode.NONE);
+            verify(entityManager, never()).createQuery(anyString(), eq(Long.class));
+            verifyNoInteractions(rowCountEstimator);
+        }
+
+        @Test
+        @DisplayName("Should explain the filtered and ordered query only when requested")
+        void shouldExplainPreviewWhenRequested() {
+            // Given
+            QueryPreviewRequest request = QueryPreviewRequest.builder()
+                    .baseQuery("SELECT c FROM Customer c")
+                    .filters(List.of("AND c.active = true"))
+                    .orders(List.of("ORDER BY c.name ASC"))
+                    .explain(true)
+                    .build();
+            QueryExplainDTO explain = QueryExplainDTO.builder()
+                    .available(true)
+                    .sequentialScans(List.of("customers"))
+                    .build();
+
+            when(entityManager.createQuery(anyString())).thenReturn(query);
+            when(query.getResultList()).thenReturn(List.of("result"));
+            when(queryPlanExplainer.explain(
+                    eq("SELECT '1' FROM Customer c WHERE c.active = true ORDER BY c.name ASC"), any()))
+                    .thenReturn(explain);
+
+            // When
+            QueryPreviewResponse explained = queryConfigService.previewQuery(request);
+            request.setExplain(false);
+            QueryPreviewResponse plain = queryConfigService.previewQuery(request);
+
+            // Then
+            assertThat(explained.isValid()).isTrue();
+            assertThat(explained.getExplain()).isSameAs(explain);
+            assertThat(plain.getExplain()).isNull();
+            verify(queryPlanExplainer, times(1)).explain(anyString(), any());
         }
     }
 
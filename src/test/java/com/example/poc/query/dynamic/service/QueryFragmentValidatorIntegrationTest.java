@@ -0,0 +1,93 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.entity.QueryFilter;
+import com.example.poc.query.dynamic.entity.QueryOrder;
+import com.example.poc.query.dynamic.repository.QueryFilterRepository;
+import com.example.poc.query.dynamic.repository.QueryOrderRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Validação de fragmentos ao salvar")
+class QueryFragmentValidatorIntegrationTest {
+
+    @Autowired
+    private QueryFragmentValidator validator;
+
+    @Autowired
+    private QueryMetadataRegistry registry;
+
+    @Autowired
+    private QueryFilterRepository queryFilterRepository;
+
+    @Autowired
+    private QueryOrderRepository queryOrderRepository;
+
+    @Test
+    @DisplayName("Deve compilar o filtro com a query base do contexto e registrar os tipos dos parâmetros")
+    void shouldCompileFilterAndRecordParameterTypes() {
+        // When
+        CompiledFragment cnpj = validator.validateFilter("CUSTOMER", "  AND   c.cnpj = :cnpj ");
+        CompiledFragment id = validator.validateFilter("CUSTOMER", "AND c.id = :id");
+        CompiledFragment active = validator.validateFilter("CUSTOMER", "WHERE c.active = true");
+
+        // Then
+        assertThat(cnpj.getText()).isEqualTo("c.cnpj = :cnpj");
+        assertThat(cnpj.getParameterTypes()).containsExactly(entry("cnpj", "String"));
+        assertThat(cnpj.parameterTypesText()).isEqualTo("cnpj:String");
+        assertThat(id.getParameterTypes()).containsExactly(entry("id", "UUID"));
+        assertThat(active.getParameterTypes()).isEmpty();
+        assertThat(active.parameterTypesText()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve recusar filtros que não compilam com a query base do contexto")
+    void shouldRejectFiltersThatDoNotCompile() {
+        assertThatThrownBy(() -> validator.validateFilter("CUSTOMER", "AND c.unknownField = true"))
+                .isInstanceOf(InvalidQueryFragmentException.class)
+                .hasMessageContaining("customer_base_query");
+        assertThatThrownBy(() -> validator.validateFilter("CUSTOMER", "OR c.active = true"))
+                .isInstanceOf(InvalidQueryFragmentException.class);
+        assertThatThrownBy(() -> validator.validateFilter("UNKNOWN_CONTEXT", "AND c.active = true"))
+                .isInstanceOf(InvalidQueryFragmentException.class)
+                .hasMessageContaining("No active base query");
+    }
+
+    @Test
+    @DisplayName("Deve compilar ordenações e queries base, recusando as inválidas")
+    void shouldValidateOrdersAndBaseQueries() {
+        // When
+        CompiledFragment order = validator.validateOrder("CUSTOMER", "ORDER BY c.name   DESC");
+
+        // Then
+        assertThat(order.getText()).isEqualTo("c.name DESC");
+        assertThatThrownBy(() -> validator.validateOrder("CUSTOMER", "ORDER BY c.missing ASC"))
+                .isInstanceOf(InvalidQueryFragmentException.class);
+        assertThatThrownBy(() -> validator.validateBase("SELECT x FROM UnknownEntity x"))
+                .isInstanceOf(InvalidQueryFragmentException.class);
+        assertThatThrownBy(() -> validator.validateBase("FROM Customer c"))
+                .isInstanceOf(InvalidQueryFragmentException.class);
+    }
+
+    @Test
+    @DisplayName("Deve gravar na inicialização a forma compilada dos fragmentos inseridos sem ela")
+    void shouldBackfillCompiledFormOfSeededFragments() {
+        // Given
+        QueryFilter cnpj = queryFilterRepository.findByNameUniqueAndActiveTrue("customer_by_cnpj").orElseThrow();
+        QueryOrder byName = queryOrderRepository.findByNameUniqueAndActiveTrue("customer_order_by_name_asc").orElseThrow();
+
+        // Then
+        assertThat(cnpj.getCompiledFragment()).isEqualTo("c.cnpj = :cnpj");
+        assertThat(cnpj.getParameterTypes()).isEqualTo("cnpj:String");
+        assertThat(byName.getCompiledFragment()).isEqualTo("c.name ASC");
+        assertThat(registry.backfillCompiledFragments()).isZero();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.poc.query.dynamic.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("QueryPlanCache Tests")
+class QueryPlanCacheTest {
+
+    private final QueryPlanCache.PlanKey key = new QueryPlanCache.PlanKey("customer_base_query", List.of(), null);
+
+    @Test
+    @DisplayName("Should never serve a plan compiled before an invalidation")
+    void shouldNotServePlanCompiledBeforeInvalidation() {
+        // Given
+        QueryPlanCache cache = new QueryPlanCache(10);
+        CompiledQueryPlan stale = CompiledQueryPlan.builder().build();
+        CompiledQueryPlan fresh = CompiledQueryPlan.builder().build();
+
+        // When
+        CompiledQueryPlan compiled = cache.getOrCompile(key, () -> {
+            // A new metadata snapshot is loaded while this plan is being compiled
+            cache.invalidateAll();
+            return stale;
+        });
+        CompiledQueryPlan next = cache.getOrCompile(key, () -> fresh);
+        CompiledQueryPlan cached = cache.getOrCompile(key, () -> CompiledQueryPlan.builder().build());
+
+        // Then
+        assertThat(compiled).isSameAs(stale);
+        assertThat(next).isSameAs(fresh);
+        assertThat(cached).isSameAs(fresh);
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep at most the configured number of plans")
+    void shouldBoundNumberOfPlans() {
+        // Given
+        QueryPlanCache cache = new QueryPlanCache(5);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            cache.getOrCompile(new QueryPlanCache.PlanKey("base_" + i, List.of(), null),
+                    () -> CompiledQueryPlan.builder().build());
+        }
+
+        // Then
+        assertThat(cache.size()).isLessThanOrEqualTo(5);
+        assertThat(cache.getMisses()).isEqualTo(50);
+    }
+}
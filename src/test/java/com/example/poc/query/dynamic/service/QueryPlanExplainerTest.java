@@ -0,0 +1,104 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.QueryExplainDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@DisplayName("QueryPlanExplainer Tests")
+class QueryPlanExplainerTest {
+
+    private static final String PLAN = """
+            [{
+              "Plan": {
+                "Node Type": "Limit", "Total Cost": 1843.27, "Plan Rows": 10,
+                "Actual Total Time": 812.4, "Actual Rows": 10,
+                "Shared Hit Blocks": 120, "Shared Read Blocks": 4310,
+                "Plans": [{
+                  "Node Type": "Sort", "Sort Key": ["c1_0.name"], "Sort Space Type": "Disk", "Sort Space Used": 2048,
+                  "Plans": [{
+                    "Node Type": "Hash Join",
+                    "Plans": [
+                      {"Node Type": "Seq Scan", "Relation Name": "customers",
+                       "Filter": "(lower((name)::text) ~~ '%silva%'::text)", "Rows Removed by Filter": 99500},
+                      {"Node Type": "Hash", "Plans": [
+                        {"Node Type": "Index Scan", "Relation Name": "customer_contacts",
+                         "Index Name": "idx_customer_contacts_customer_id"}
+                      ]},
+                      {"Node Type": "Seq Scan", "Relation Name": "regions"}
+                    ]
+                  }]
+                }]
+              },
+              "Planning Time": 0.31,
+              "Execution Time": 812.9
+            }]
+            """;
+
+    private RowCountEstimator rowCountEstimator;
+    private QueryPlanExplainer explainer;
+
+    @BeforeEach
+    void setUp() {
+        rowCountEstimator = mock(RowCountEstimator.class);
+        explainer = new QueryPlanExplainer(rowCountEstimator, new ObjectMapper());
+        ReflectionTestUtils.setField(explainer, "slowThreshold", Duration.ofMillis(500));
+    }
+
+    @Test
+    @DisplayName("Should summarize costs, buffers, indexes and sequential scans of the plan")
+    void shouldSummarizePlan() throws Exception {
+        // When
+        QueryExplainDTO explain = explainer.summarize(PLAN);
+
+        // Then
+        assertThat(explain.isAvailable()).isTrue();
+        assertThat(explain.getEstimatedCost()).isEqualTo(1843.27);
+        assertThat(explain.getEstimatedRows()).isEqualTo(10);
+        assertThat(explain.getActualTimeMs()).isEqualTo(812.4);
+        assertThat(explain.getActualRows()).isEqualTo(10);
+        assertThat(explain.getPlanningTimeMs()).isEqualTo(0.31);
+        assertThat(explain.getExecutionTimeMs()).isEqualTo(812.9);
+        assertThat(explain.getSharedHitBlocks()).isEqualTo(120);
+        assertThat(explain.getSharedReadBlocks()).isEqualTo(4310);
+        assertThat(explain.getIndexesUsed()).containsExactly("idx_customer_contacts_customer_id");
+        assertThat(explain.getSequentialScans()).containsExactly("customers", "regions");
+        assertThat(explain.getPlan()).isEqualTo(PLAN);
+    }
+
+    @Test
+    @DisplayName("Should warn about filtered sequential scans, disk sorts and slow executions")
+    void shouldWarnAboutSlowPlanNodes() throws Exception {
+        // When
+        QueryExplainDTO explain = explainer.summarize(PLAN);
+
+        // Then
+        assertThat(explain.isSlow()).isTrue();
+        assertThat(explain.getWarnings()).hasSize(3);
+        assertThat(explain.getWarnings().get(0)).contains("c1_0.name").contains("disk");
+        assertThat(explain.getWarnings().get(1)).contains("customers").contains("99500 rows removed");
+        assertThat(explain.getWarnings().get(2)).contains("slow query threshold of 500 ms");
+    }
+
+    @Test
+    @DisplayName("Should report the plan as unavailable outside PostgreSQL")
+    void shouldReportUnavailableOutsidePostgres() {
+        // Given
+        when(rowCountEstimator.isSupported()).thenReturn(false);
+
+        // When
+        QueryExplainDTO explain = explainer.explain("SELECT '1' FROM Customer c", query -> { });
+
+        // Then
+        assertThat(explain.isAvailable()).isFalse();
+        assertThat(explain.getMessage()).contains("PostgreSQL");
+        verify(rowCountEstimator, never()).explain(anyString(), anyString(), any());
+    }
+}
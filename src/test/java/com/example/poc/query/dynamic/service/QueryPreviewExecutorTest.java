@@ -0,0 +1,121 @@
+package com.example.poc.query.dynamic.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("QueryPreviewExecutor Tests")
+class QueryPreviewExecutorTest {
+
+    private Session session;
+    private PlatformTransactionManager transactionManager;
+    private QueryPreviewExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        session = mock(Session.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        executor = new QueryPreviewExecutor(entityManager, transactionManager, new SimpleMeterRegistry(),
+                1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should run the preview in a transaction that is always rolled back")
+    void shouldRunPreviewInRolledBackTransaction() {
+        // When
+        String result = executor.execute("p1", () -> "ok");
+
+        // Then
+        ArgumentCaptor<TransactionStatus> status = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager).commit(status.capture());
+        assertThat(result).isEqualTo("ok");
+        // The transaction manager turns the commit of a rollback-only transaction into a rollback
+        assertThat(status.getValue().isRollbackOnly()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject previews when the lane is full or the id is already running")
+    void shouldRejectWhenLaneIsFull() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> executor.execute("p1", () -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        assertThatThrownBy(() -> executor.execute("p1", () -> "again"))
+                .hasMessageContaining("already running");
+        assertThatThrownBy(() -> executor.execute("p2", () -> "second"))
+                .hasMessageContaining("Too many previews");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+    }
+
+    @Test
+    @DisplayName("Should cancel the running statement and fail the preview")
+    void shouldCancelRunningPreview() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.countDown();
+            return null;
+        }).when(session).cancelQuery();
+        CompletableFuture<String> preview = CompletableFuture.supplyAsync(() -> executor.execute("p1", () -> {
+            started.countDown();
+            await(release);
+            return "done";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        boolean cancelled = executor.cancel("p1");
+
+        // Then
+        assertThat(cancelled).isTrue();
+        verify(session).cancelQuery();
+        assertThatThrownBy(() -> preview.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Preview cancelled");
+        assertThat(executor.cancel("p1")).isFalse();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.poc.query.dynamic.service;
+
+import com.example.poc.query.dynamic.dto.SlowQueryDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SlowQueryRecorder Tests")
+class SlowQueryRecorderTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private final CompiledQueryPlan plan = CompiledQueryPlan.builder()
+            .key(new QueryPlanCache.PlanKey("customer_base_query", List.of("customer_by_id"), null))
+            .build();
+
+    @Test
+    @DisplayName("Should ignore executions below the threshold and keep only parameter types")
+    void shouldIgnoreFastExecutionsAndKeepOnlyParameterTypes() {
+        // Given
+        SlowQueryRecorder recorder = new SlowQueryRecorder(Duration.ofMillis(100), 10);
+        Map<String, Object> parameters = Map.of("id", UUID.randomUUID());
+
+        // When
+        recorder.record("offset", plan, "SELECT c FROM Customer c WHERE c.id = :id", parameters, 99 * MILLIS, 1);
+        recorder.record("offset", plan, "SELECT c FROM Customer c WHERE c.id = :id", parameters, 150 * MILLIS, 1);
+        recorder.record("offset", plan, "SELECT c FROM Customer c WHERE c.id = :id", parameters, 120 * MILLIS, 1);
+
+        // Then
+        List<SlowQueryDTO> slowest = recorder.getSlowest();
+        assertThat(slowest).hasSize(1);
+        assertThat(slowest.get(0).getOccurrences()).isEqualTo(2);
+        assertThat(slowest.get(0).getMaxDurationMs()).isEqualTo(150);
+        assertThat(slowest.get(0).getLastDurationMs()).isEqualTo(120);
+        assertThat(slowest.get(0).getFilters()).containsExactly("customer_by_id");
+        assertThat(slowest.get(0).getParameterTypes()).containsExactly(Map.entry("id", "UUID"));
+    }
+
+    @Test
+    @DisplayName("Should keep only the N slowest query shapes, slowest first")
+    void shouldKeepOnlyTopNSlowestShapes() {
+        // Given
+        SlowQueryRecorder recorder = new SlowQueryRecorder(Duration.ZERO, 2);
+
+        // When
+        recorder.record("offset", plan, "SELECT c FROM Customer c", Map.of(), 300 * MILLIS, 10);
+        recorder.record("count", plan, "SELECT COUNT(c) FROM Customer c", Map.of(), 100 * MILLIS, 1);
+        recorder.record("keyset", plan, "SELECT c FROM Customer c ORDER BY c.id", Map.of(), 200 * MILLIS, 10);
+
+        // Then
+        assertThat(recorder.getSlowest())
+                .extracting(SlowQueryDTO::getKind)
+                .containsExactly("offset", "keyset");
+    }
+}
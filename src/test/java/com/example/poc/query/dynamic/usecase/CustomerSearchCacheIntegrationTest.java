@@ -0,0 +1,136 @@
+package com.example.poc.query.dynamic.usecase;
+
+import com.example.poc.query.dynamic.dto.CustomerDTO;
+import com.example.poc.query.dynamic.dto.CustomerFilterDTO;
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.repository.CustomerRepository;
+import com.example.poc.query.dynamic.service.QueryMetadataRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "dynamic-query.result-cache.enabled=true")
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("CustomerSearchCache Integration Tests")
+class CustomerSearchCacheIntegrationTest {
+
+    @Autowired
+    private SearchCustomerUseCase searchCustomerUseCase;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private QueryMetadataRegistry queryMetadataRegistry;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository.deleteAll();
+
+        customerRepository.save(customer("Empresa Silva LTDA", "11111111111111", true));
+        customerRepository.save(customer("Empresa Santos ME", "22222222222222", true));
+        customerRepository.save(customer("Empresa Oliveira S/A", "33333333333333", false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Deve responder do cache a mesma busca, mesmo com os filtros em outra ordem")
+    void shouldServeEquivalentSearchFromCache() {
+        // Given
+        CustomerFilterDTO first = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives", "customer_by_name"))
+                .parameters(Map.of("name", "Empresa"))
+                .build();
+        CustomerFilterDTO reordered = CustomerFilterDTO.builder()
+                .filters(List.of("customer_by_name", "only_customer_actives"))
+                .parameters(Map.of("name", "Empresa"))
+                .build();
+
+        // When
+        Page<CustomerDTO> firstResult = searchCustomerUseCase.execute(first, PageRequest.of(0, 10));
+        Page<CustomerDTO> secondResult = searchCustomerUseCase.execute(reordered, PageRequest.of(0, 10));
+        Page<CustomerDTO> otherPage = searchCustomerUseCase.execute(first, PageRequest.of(1, 10));
+
+        // Then
+        assertThat(firstResult.getTotalElements()).isEqualTo(2);
+        assertThat(secondResult).isSameAs(firstResult);
+        assertThat(otherPage).isNotSameAs(firstResult);
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Deve invalidar o cache quando um customer é inserido ou alterado")
+    void shouldInvalidateCacheWhenCustomerIsWritten() {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives"))
+                .parameters(Map.of())
+                .build();
+        Page<CustomerDTO> before = searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+
+        // When
+        customerRepository.save(customer("Silva Comércio EIRELI", "44444444444444", true));
+        Page<CustomerDTO> afterInsert = searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+
+        Customer inactive = customerRepository.findAll().stream()
+                .filter(customer -> customer.getCnpj().equals("33333333333333"))
+                .findFirst()
+                .orElseThrow();
+        inactive.setActive(true);
+        customerRepository.save(inactive);
+        Page<CustomerDTO> afterUpdate = searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+
+        // Then
+        assertThat(before.getTotalElements()).isEqualTo(2);
+        assertThat(afterInsert.getTotalElements()).isEqualTo(3);
+        assertThat(afterUpdate.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Deve invalidar o cache somente depois que os metadados de queries são recarregados")
+    void shouldInvalidateCacheAfterMetadataReload() {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives"))
+                .parameters(Map.of())
+                .build();
+        Page<CustomerDTO> before = searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+        Page<CustomerDTO> cached = searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+
+        // When
+        queryMetadataRegistry.reload();
+        Page<CustomerDTO> afterReload = searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+
+        // Then
+        assertThat(cached).isSameAs(before);
+        assertThat(afterReload).isNotSameAs(before);
+        assertThat(afterReload.getTotalElements()).isEqualTo(before.getTotalElements());
+    }
+
+    private static Customer customer(String name, String cnpj, boolean active) {
+        return Customer.builder()
+                .name(name)
+                .cnpj(cnpj)
+                .active(active)
+                .blocked(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.poc.query.dynamic.usecase;
+
+import com.example.poc.query.dynamic.dto.CustomerFilterDTO;
+import com.example.poc.query.dynamic.dto.ExportFormat;
+import com.example.poc.query.dynamic.entity.Customer;
+import com.example.poc.query.dynamic.repository.CustomerRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("ExportCustomerUseCase Integration Tests")
+class ExportCustomerUseCaseIntegrationTest {
+
+    @Autowired
+    private ExportCustomerUseCase exportCustomerUseCase;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository.deleteAll();
+
+        customerRepository.save(Customer.builder()
+                .name("Empresa Silva LTDA")
+                .tradeName("Silva")
+                .cnpj("11111111111111")
+                .active(true)
+                .blocked(false)
+                .createdAt(LocalDateTime.now().minusDays(2))
+                .updatedAt(LocalDateTime.now().minusDays(2))
+                .build());
+
+        customerRepository.save(Customer.builder()
+                .name("Empresa Santos, ME")
+                .tradeName("Santos \"Matriz\"")
+                .cnpj("22222222222222")
+                .active(true)
+                .blocked(true)
+                .createdAt(LocalDateTime.now().minusDays(1))
+                .updatedAt(LocalDateTime.now().minusDays(1))
+                .build());
+
+        customerRepository.save(Customer.builder()
+                .name("Empresa Oliveira S/A")
+                .tradeName("Oliveira")
+                .cnpj("33333333333333")
+                .active(false)
+                .blocked(false)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Deve exportar os customers filtrados em NDJSON, uma linha por customer")
+    void shouldExportFilteredCustomersAsNdjson() throws Exception {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives"))
+                .order("customer_order_by_name_asc")
+                .parameters(Map.of())
+                .build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long exported = exportCustomerUseCase.execute(filter, ExportFormat.NDJSON, output);
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(exported).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+
+        JsonNode first = objectMapper.readTree(lines[0]);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(first.get("name").asText()).isEqualTo("Empresa Santos, ME");
+        assertThat(second.get("name").asText()).isEqualTo("Empresa Silva LTDA");
+        assertThat(first.get("indicators").findValuesAsText("key")).contains("customer_is_blocked");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("Deve exportar em CSV com cabeçalho, indicadores e valores escapados")
+    void shouldExportAsCsvWithHeaderAndEscapedValues() throws Exception {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .order("customer_order_by_created_asc")
+                .parameters(Map.of())
+                .build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long exported = exportCustomerUseCase.execute(filter, ExportFormat.CSV, output);
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(exported).isEqualTo(3);
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).startsWith("id,name,tradeName,cnpj,active,blocked,createdAt,updatedAt,")
+                .contains("customer_is_blocked");
+        assertThat(lines[2]).contains("\"Empresa Santos, ME\",\"Santos \"\"Matriz\"\"\",22222222222222,true,true");
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.poc.query.dynamic.usecase;
 
+import com.example.poc.query.dynamic.dto.AvailableQueriesDTO;
+import com.example.poc.query.dynamic.dto.CountMode;
 import com.example.poc.query.dynamic.dto.CustomerDTO;
 import com.example.poc.query.dynamic.dto.CustomerFilterDTO;
 import com.example.poc.query.dynamic.dto.CustomerSearchResponseDTO;
+import com.example.poc.query.dynamic.dto.PaginationMode;
+import com.example.poc.query.dynamic.dto.QueryPlanCacheStatsDTO;
 import com.example.poc.query.dynamic.entity.Customer;
 import com.example.poc.query.dynamic.repository.CustomerRepository;
+import com.example.poc.query.dynamic.service.DynamicQueryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,8 +19,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +43,12 @@ class SearchCustomerUseCaseIntegrationTest {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private DynamicQueryService dynamicQueryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
 
     @BeforeEach
     void setUp() {
@@ -475,6 +491,8 @@ class SearchCustomerUseCaseIntegrationTest {
         assertThatThrownBy(() -> searchCustomerUseCase.execute(filter, pageable))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("Filter not found");
+        assertThat(meterRegistry.find("dynamic.query.plan.compile").tag("filters", "filtro_que_nao_existe").timer())
+                .isNull();
     }
 
     @Test
@@ -936,5 +954,262 @@ class SearchCustomerUseCaseIntegrationTest {
         assertThat(result.getContent().get(0).getId()).isEqualTo(savedCustomer.getId());
         assertThat(result.getContent().get(0).getActive()).isTrue();
     }
-}
 
+    @Test
+    @Order(28)
+    @DisplayName("Deve retornar opções com versão e ETag estáveis entre chamadas")
+    void shouldReturnVersionedAvailableQueries() {
+        // When
+        AvailableQueriesDTO first = searchCustomerUseCase.getAvailableQueries();
+        AvailableQueriesDTO second = searchCustomerUseCase.getAvailableQueries();
+
+        // Then
+        assertThat(first.getVersion()).isNotNull().isPositive();
+        assertThat(first.getEtag()).isNotBlank();
+        assertThat(second.getEtag()).isEqualTo(first.getEtag());
+        assertThat(second.getVersion()).isEqualTo(first.getVersion());
+    }
+
+    @Test
+    @Order(29)
+    @DisplayName("Deve percorrer todas as páginas usando paginação por cursor")
+    void shouldWalkAllPagesWithKeysetPagination() {
+        // Given
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        // When
+        do {
+            CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                    .filters(List.of())
+                    .order("customer_order_by_name_asc")
+                    .parameters(Map.of())
+                    .paginationMode(PaginationMode.KEYSET)
+                    .cursor(cursor)
+                    .build();
+
+            CustomerSearchResponseDTO response = searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 3));
+            response.getCustomers().getContent().forEach(customer -> names.add(customer.getName()));
+            assertThat(response.getCustomers().getTotalElements()).isEqualTo(4);
+            cursor = response.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(pages).isEqualTo(2);
+        assertThat(names).containsExactly(
+                "Empresa Oliveira S/A", "Empresa Santos ME", "Empresa Silva LTDA", "Silva Comércio EIRELI");
+    }
+
+    @Test
+    @Order(30)
+    @DisplayName("Deve aplicar filtros e ordenação decrescente na paginação por cursor")
+    void shouldApplyFiltersAndDescendingOrderWithKeysetPagination() {
+        // Given
+        CustomerFilterDTO firstPage = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives"))
+                .order("customer_order_by_created_desc")
+                .parameters(Map.of())
+                .paginationMode(PaginationMode.KEYSET)
+                .build();
+
+        // When
+        CustomerSearchResponseDTO first = searchCustomerUseCase.executeWithOptions(firstPage, PageRequest.of(0, 2));
+        CustomerFilterDTO secondPage = CustomerFilterDTO.builder()
+                .filters(firstPage.getFilters())
+                .order(firstPage.getOrder())
+                .parameters(Map.of())
+                .paginationMode(PaginationMode.KEYSET)
+                .cursor(first.getNextCursor())
+                .build();
+        CustomerSearchResponseDTO second = searchCustomerUseCase.executeWithOptions(secondPage, PageRequest.of(0, 2));
+
+        // Then
+        assertThat(first.getCustomers().getContent()).extracting(CustomerDTO::getName)
+                .containsExactly("Silva Comércio EIRELI", "Empresa Santos ME");
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(second.getCustomers().getContent()).extracting(CustomerDTO::getName)
+                .containsExactly("Empresa Silva LTDA");
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    @Order(31)
+    @DisplayName("Deve rejeitar cursor gerado para outra ordenação")
+    void shouldRejectCursorFromAnotherOrder() {
+        // Given
+        CustomerFilterDTO byName = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .order("customer_order_by_name_asc")
+                .parameters(Map.of())
+                .paginationMode(PaginationMode.KEYSET)
+                .build();
+        String cursor = searchCustomerUseCase.executeWithOptions(byName, PageRequest.of(0, 1)).getNextCursor();
+
+        CustomerFilterDTO byCreation = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .order("customer_order_by_created_asc")
+                .parameters(Map.of())
+                .paginationMode(PaginationMode.KEYSET)
+                .cursor(cursor)
+                .build();
+
+        // When / Then
+        assertThatThrownBy(() -> searchCustomerUseCase.execute(byCreation, PageRequest.of(0, 1)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Cursor does not match");
+    }
+
+    @Test
+    @Order(32)
+    @DisplayName("Deve indicar próxima página sem contar quando countMode é NONE")
+    void shouldDetectNextPageWithoutCounting() {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .order("customer_order_by_name_asc")
+                .parameters(Map.of())
+                .countMode(CountMode.NONE)
+                .build();
+
+        // When
+        CustomerSearchResponseDTO first = searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 3));
+        CustomerSearchResponseDTO last = searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(1, 3));
+
+        // Then
+        assertThat(first.getCountMode()).isEqualTo(CountMode.NONE);
+        assertThat(first.getCustomers().getContent()).hasSize(3);
+        assertThat(first.getCustomers().hasNext()).isTrue();
+        assertThat(last.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(last.getCustomers().getContent()).hasSize(1);
+        assertThat(last.getCustomers().getTotalElements()).isEqualTo(4);
+        assertThat(last.getCustomers().hasNext()).isFalse();
+    }
+
+    @Test
+    @Order(33)
+    @DisplayName("Deve limitar a contagem no modo CAPPED e cair para contagem exata no ESTIMATED sem PostgreSQL")
+    void shouldCapCountAndFallbackEstimatedToExact() {
+        // Given
+        CustomerFilterDTO capped = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .parameters(Map.of())
+                .countMode(CountMode.CAPPED)
+                .build();
+        CustomerFilterDTO estimated = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .parameters(Map.of())
+                .countMode(CountMode.ESTIMATED)
+                .build();
+
+        // When
+        CustomerSearchResponseDTO cappedResult = searchCustomerUseCase.executeWithOptions(capped, PageRequest.of(0, 1));
+        CustomerSearchResponseDTO estimatedResult = searchCustomerUseCase.executeWithOptions(estimated, PageRequest.of(0, 1));
+
+        // Then
+        assertThat(cappedResult.getCountMode()).isEqualTo(CountMode.CAPPED);
+        assertThat(cappedResult.getCustomers().getTotalElements()).isEqualTo(2);
+        assertThat(estimatedResult.getCountMode()).isEqualTo(CountMode.EXACT);
+        assertThat(estimatedResult.getCustomers().getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    @Order(34)
+    @DisplayName("Deve reutilizar o mesmo plano para os mesmos filtros em outra ordem ou repetidos")
+    void shouldReusePlanForEquivalentFilterCombinations() {
+        // Given
+        Map<String, Object> parameters = Map.of("name", "Silva");
+        CustomerFilterDTO first = CustomerFilterDTO.builder()
+                .filters(List.of("customer_by_name", "only_customer_actives"))
+                .parameters(parameters)
+                .build();
+        CustomerFilterDTO reordered = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives", "customer_by_name", "only_customer_actives"))
+                .parameters(parameters)
+                .build();
+        searchCustomerUseCase.execute(first, PageRequest.of(0, 10));
+        QueryPlanCacheStatsDTO before = dynamicQueryService.getPlanCacheStats();
+
+        // When
+        Page<CustomerDTO> result = searchCustomerUseCase.execute(reordered, PageRequest.of(0, 10));
+        QueryPlanCacheStatsDTO after = dynamicQueryService.getPlanCacheStats();
+
+        // Then
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(after.getPlanCacheMisses()).isEqualTo(before.getPlanCacheMisses());
+        assertThat(after.getPlanCacheHits()).isGreaterThan(before.getPlanCacheHits());
+        assertThat(after.getCachedPlans()).isEqualTo(before.getCachedPlans());
+        assertThat(after.getHibernateStatisticsEnabled()).isTrue();
+        assertThat(after.getHibernateQueryPlanCacheHits()).isGreaterThan(before.getHibernateQueryPlanCacheHits());
+    }
+
+    @Test
+    @Order(35)
+    @DisplayName("Deve registrar métricas de execução marcadas pela combinação de base, filtros e ordenação")
+    void shouldRecordMetricsTaggedByQueryCombination() {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of("only_customer_actives"))
+                .order("customer_order_by_name_asc")
+                .parameters(Map.of())
+                .build();
+
+        // When
+        searchCustomerUseCase.execute(filter, PageRequest.of(0, 10));
+
+        // Then
+        Timer execution = meterRegistry.find("dynamic.query.execution")
+                .tag("base", "customer_base_query")
+                .tag("filters", "only_customer_actives")
+                .tag("order", "customer_order_by_name_asc")
+                .tag("pagination", "offset")
+                .timer();
+        assertThat(execution).isNotNull();
+        assertThat(execution.count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.find("dynamic.query.rows")
+                .tag("filters", "only_customer_actives")
+                .summary()
+                .totalAmount()).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.find("dynamic.query.indicators")
+                .tag("filters", "only_customer_actives")
+                .timer()).isNotNull();
+    }
+
+    @Test
+    @Order(36)
+    @DisplayName("Deve executar a contagem exata em paralelo quando o total não vem da própria página")
+    void shouldRunExactCountInParallel() {
+        // Given
+        Object target = AopTestUtils.getUltimateTargetObject(dynamicQueryService);
+        ReflectionTestUtils.setField(target, "windowCountEnabled", false);
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .order("customer_order_by_name_asc")
+                .parameters(Map.of())
+                .countMode(CountMode.EXACT)
+                .build();
+        double before = meterRegistry.get("executor.completed").tag("name", "dynamicQuery").functionCounter().count();
+
+        try {
+            // When
+            CustomerSearchResponseDTO offset = searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 2));
+            filter.setPaginationMode(PaginationMode.KEYSET);
+            CustomerSearchResponseDTO first = searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 3));
+            filter.setCursor(first.getNextCursor());
+            CustomerSearchResponseDTO second = searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 3));
+
+            // Then
+            assertThat(offset.getCountMode()).isEqualTo(CountMode.EXACT);
+            assertThat(offset.getCustomers().getContent()).hasSize(2);
+            assertThat(offset.getCustomers().getTotalElements()).isEqualTo(4);
+            assertThat(offset.getAvailableQueries().getFilters()).isNotEmpty();
+            assertThat(second.getCustomers().getContent()).hasSize(1);
+            assertThat(second.getCustomers().getTotalElements()).isEqualTo(4);
+            assertThat(meterRegistry.get("executor.completed").tag("name", "dynamicQuery").functionCounter().count())
+                    .isGreaterThanOrEqualTo(before + 2);
+        } finally {
+            ReflectionTestUtils.setField(target, "windowCountEnabled", true);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.poc.query.dynamic.usecase;
+
+import com.example.poc.query.dynamic.dto.CountMode;
+import com.example.poc.query.dynamic.dto.CustomerFilterDTO;
+import com.example.poc.query.dynamic.dto.SlowQueryDTO;
+import com.example.poc.query.dynamic.service.SlowQueryRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "dynamic-query.slow-query.threshold=0ms")
+@ActiveProfiles("test")
+@DisplayName("SlowQueryRecorder Integration Tests")
+class SlowQueryRecorderIntegrationTest {
+
+    @Autowired
+    private SearchCustomerUseCase searchCustomerUseCase;
+
+    @Autowired
+    private SlowQueryRecorder slowQueryRecorder;
+
+    @BeforeEach
+    void setUp() {
+        slowQueryRecorder.clear();
+    }
+
+    @Test
+    @DisplayName("Deve registrar consultas lentas de contagem apenas quando a contagem ou a sondagem executa")
+    void shouldRecordSlowCountOnlyWhenStatementRuns() {
+        // Given
+        CustomerFilterDTO filter = CustomerFilterDTO.builder()
+                .filters(List.of())
+                .order("customer_order_by_created_asc")
+                .parameters(Map.of())
+                .build();
+
+        // When
+        filter.setCountMode(CountMode.NONE);
+        searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 1));
+        filter.setCountMode(CountMode.EXACT);
+        searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 1));
+        List<String> withoutCount = slowQueryRecorder.getSlowest().stream().map(SlowQueryDTO::getKind).toList();
+        filter.setCountMode(CountMode.CAPPED);
+        searchCustomerUseCase.executeWithOptions(filter, PageRequest.of(0, 1));
+
+        // Then
+        assertThat(withoutCount).containsOnly("offset");
+        assertThat(slowQueryRecorder.getSlowest())
+                .filteredOn(slow -> slow.getKind().equals("capped-count"))
+                .singleElement()
+                .satisfies(slow -> assertThat(slow.getQuery()).doesNotContain("COUNT("));
+    }
+}
@@ -1,6 +1,6 @@
 -- Insert base query for customers
-INSERT INTO query_base (id, name_unique, context, query, description, active, created_at, updated_at)
-VALUES (RANDOM_UUID(), 'customer_base_query', 'CUSTOMER', 'SELECT c FROM Customer c WHERE c.deletedAt IS NULL', 'Query base para buscar todos os customers não deletados', true, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+INSERT INTO query_base (id, name_unique, context, query, projection, description, active, created_at, updated_at)
+VALUES (RANDOM_UUID(), 'customer_base_query', 'CUSTOMER', 'SELECT c FROM Customer c WHERE c.deletedAt IS NULL', 'id, name, tradeName, cnpj, active, blocked, createdAt, updatedAt', 'Query base para buscar todos os customers não deletados', true, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
 
 -- Insert filters for customers
 INSERT INTO query_filter (id, name_unique, context, query_fragment, description, active, created_at, updated_at)